@@ -2,6 +2,7 @@ package com.shivamsrivastav.payment;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * PayPal Payment Gateway Demo Application
@@ -19,6 +20,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @author Shivam Srivastav
  */
 @SpringBootApplication
+@EnableScheduling
 public class PaypalPaymentDemoApplication {
 
     public static void main(String[] args) {
@@ -1,19 +1,22 @@
 package com.shivamsrivastav.payment.config;
 
-import com.paypal.base.rest.APIContext;
-import com.paypal.base.rest.OAuthTokenCredential;
-import com.paypal.base.rest.PayPalRESTException;
+import com.shivamsrivastav.payment.service.PayPalTokenService;
+import com.shivamsrivastav.payment.service.PayPalTransport;
+import com.shivamsrivastav.payment.service.PooledPayPalTransport;
+import com.shivamsrivastav.payment.service.SdkPayPalTransport;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * PayPal Configuration
  * 
- * Sets up the PayPal API Context with credentials from application.yml.
+ * Sets up PayPal SDK access with credentials from application.yml.
  * 
  * @author Shivam Srivastav
  */
@@ -30,19 +33,75 @@ public class PayPalConfig {
     private String mode;
 
     /**
-     * Creates the PayPal API Context.
-     * This context is used for all PayPal API calls.
+     * Optional override of the PayPal REST endpoint, e.g. a local stub
+     * server for load testing. Empty means the SDK default for the mode.
      */
-    @Bean
-    public APIContext apiContext() throws PayPalRESTException {
-        // Create API Context with client ID and secret
-        APIContext context = new APIContext(clientId, clientSecret, mode);
+    @Value("${paypal.endpoint:}")
+    private String endpoint;
+
+    /**
+     * How long before expiry the cached OAuth token is refreshed.
+     */
+    @Value("${paypal.oauth.refresh-before-expiry-seconds:300}")
+    private long refreshBeforeExpirySeconds;
+
+    /**
+     * HTTP transport for PayPal calls: "pooled" (keep-alive connection
+     * pool) or "sdk" (the SDK's own HttpURLConnection per call).
+     */
+    @Value("${paypal.http.transport:pooled}")
+    private String transport;
+
+    @Value("${paypal.http.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${paypal.http.max-connections-total:100}")
+    private int maxConnectionsTotal;
+
+    @Value("${paypal.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${paypal.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    @Value("${paypal.http.connection-ttl-seconds:300}")
+    private long connectionTtlSeconds;
 
-        // Optional: Configuration map
+    @Value("${paypal.http.idle-eviction-seconds:30}")
+    private long idleEvictionSeconds;
+
+    /**
+     * Creates the PayPal token service.
+     * It caches the OAuth token and builds the API context for each PayPal call.
+     */
+    @Bean
+    public PayPalTokenService payPalTokenService(MeterRegistry meterRegistry) {
+        // SDK configuration map
         Map<String, String> configMap = new HashMap<>();
         configMap.put("mode", mode);
-        context.setConfigurationMap(configMap);
+        if (!endpoint.isEmpty()) {
+            configMap.put("service.EndPoint", endpoint);
+        }
+
+        return new PayPalTokenService(clientId, clientSecret, configMap,
+                Duration.ofSeconds(refreshBeforeExpirySeconds), meterRegistry);
+    }
+
+    /**
+     * Creates the HTTP transport used for PayPal REST calls.
+     */
+    @Bean
+    public PayPalTransport payPalTransport(MeterRegistry meterRegistry) {
+        if ("sdk".equalsIgnoreCase(transport)) {
+            return new SdkPayPalTransport();
+        }
+
+        String baseUrl = !endpoint.isEmpty() ? endpoint
+                : "live".equalsIgnoreCase(mode) ? "https://api.paypal.com/" : "https://api.sandbox.paypal.com/";
 
-        return context;
+        return new PooledPayPalTransport(baseUrl,
+                new PooledPayPalTransport.PayPalHttpSettings(maxConnectionsPerRoute, maxConnectionsTotal,
+                        connectTimeoutMs, readTimeoutMs, connectionTtlSeconds, idleEvictionSeconds),
+                meterRegistry);
     }
 }
@@ -1,7 +1,9 @@
 package com.shivamsrivastav.payment.controller;
 
 import com.shivamsrivastav.payment.dto.request.CreateOrderRequest;
+import com.shivamsrivastav.payment.dto.response.OrderPageResponse;
 import com.shivamsrivastav.payment.entity.Order;
+import com.shivamsrivastav.payment.entity.enums.OrderStatus;
 import com.shivamsrivastav.payment.service.OrderService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -9,8 +11,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 /**
  * Order Controller
  * 
@@ -46,8 +46,17 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrderById(id));
     }
 
+    /**
+     * List orders newest first with keyset pagination.
+     * Pass the returned nextCursor as cursor to get the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<OrderPageResponse> getAllOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) String customerEmail,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includePayments) {
+        return ResponseEntity.ok(orderService.listOrders(status, customerEmail, cursor, size, includePayments));
     }
 }
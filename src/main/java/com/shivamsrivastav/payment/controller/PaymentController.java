@@ -2,12 +2,20 @@ package com.shivamsrivastav.payment.controller;
 
 import com.shivamsrivastav.payment.dto.request.*;
 import com.shivamsrivastav.payment.dto.response.PaymentResponse;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.service.PaymentExportService;
 import com.shivamsrivastav.payment.service.PaymentService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
 
 /**
  * Payment Controller
@@ -23,9 +31,11 @@ public class PaymentController {
     private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
 
     private final PaymentService paymentService;
+    private final PaymentExportService paymentExportService;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentExportService paymentExportService) {
         this.paymentService = paymentService;
+        this.paymentExportService = paymentExportService;
     }
 
     // ==================== CREATE PAYMENT ====================
@@ -94,4 +104,42 @@ public class PaymentController {
         PaymentResponse response = paymentService.getPaymentByPaypalId(paypalId);
         return ResponseEntity.ok(response);
     }
+
+    // ==================== EXPORT PAYMENTS ====================
+
+    /**
+     * Stream all payments created between two dates (inclusive) as
+     * NDJSON (default) or CSV.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        log.info("API: Export payments: from={}, to={}, format={}", from, to, format);
+
+        if (to.isBefore(from)) {
+            throw new PaymentException("'to' must not be before 'from'");
+        }
+
+        PaymentExportService.Format exportFormat = switch (format.toLowerCase()) {
+            case "ndjson" -> PaymentExportService.Format.NDJSON;
+            case "csv" -> PaymentExportService.Format.CSV;
+            default -> throw new PaymentException("Unsupported export format: " + format);
+        };
+
+        StreamingResponseBody body = out -> paymentExportService.export(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), exportFormat, out);
+
+        String filename = "payments-" + from + "-" + to + (exportFormat == PaymentExportService.Format.CSV
+                ? ".csv" : ".ndjson");
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat == PaymentExportService.Format.CSV
+                        ? MediaType.parseMediaType("text/csv")
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
 }
@@ -0,0 +1,72 @@
+package com.shivamsrivastav.payment.controller;
+
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.service.ReconciliationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Reconciliation Controller
+ * 
+ * Runs a reconciliation of an uploaded PayPal settlement report against
+ * the payments table.
+ * 
+ * @author Shivam Srivastav
+ */
+@RestController
+@RequestMapping("/api/reconciliation")
+public class ReconciliationController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationController.class);
+
+    private final ReconciliationService reconciliationService;
+
+    public ReconciliationController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    /**
+     * Upload a settlement report (CSV) covering [from, to] and reconcile it.
+     */
+    @PostMapping("/run")
+    public ResponseEntity<ReconciliationResult> run(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        log.info("API: Reconciliation run: file={}, size={}, from={}, to={}",
+                file.getOriginalFilename(), file.getSize(), from, to);
+
+        if (to.isBefore(from)) {
+            throw new PaymentException("'to' must not be before 'from'");
+        }
+
+        Path report = null;
+        try {
+            // Spool the upload to disk; the report is streamed from there
+            report = Files.createTempFile("settlement-report-", ".csv");
+            file.transferTo(report);
+            return ResponseEntity.ok(reconciliationService.reconcile(report, from, to));
+        } catch (IOException e) {
+            throw new PaymentException("Could not read uploaded settlement report", e);
+        } finally {
+            if (report != null) {
+                try {
+                    Files.deleteIfExists(report);
+                } catch (IOException e) {
+                    log.debug("Could not delete {}", report);
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.shivamsrivastav.payment.controller;
 
+import com.shivamsrivastav.payment.dto.response.WebhookBacklogResponse;
 import com.shivamsrivastav.payment.service.WebhookService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,6 +23,13 @@ public class WebhookController {
 
     private final WebhookService webhookService;
 
+    /**
+     * sync: process the event on the request thread.
+     * async: persist the raw payload and let WebhookIngestionWorker apply it.
+     */
+    @Value("${webhook.ingestion.mode:sync}")
+    private String ingestionMode;
+
     public WebhookController(WebhookService webhookService) {
         this.webhookService = webhookService;
     }
@@ -37,6 +46,10 @@ public class WebhookController {
         log.info("Received PayPal webhook: transmissionId={}", transmissionId);
 
         try {
+            if ("async".equalsIgnoreCase(ingestionMode)) {
+                webhookService.ingestWebhook(payload);
+                return ResponseEntity.ok("Webhook received");
+            }
             webhookService.processWebhook(payload);
             return ResponseEntity.ok("Webhook processed successfully");
         } catch (Exception e) {
@@ -45,6 +58,29 @@ public class WebhookController {
         }
     }
 
+    /**
+     * Bulk ingestion of a JSON array of webhook events (e.g. a replay).
+     * Events are stored and then applied by the background ingestion worker.
+     */
+    @PostMapping("/paypal/batch")
+    public ResponseEntity<String> ingestPayPalWebhookBatch(@RequestBody String payload) {
+        int stored = webhookService.ingestWebhooks(payload);
+        log.info("Received PayPal webhook batch: stored={}", stored);
+        return ResponseEntity.ok("Webhook batch received: " + stored + " new events");
+    }
+
+    /**
+     * Unprocessed events (pending, retrying, dead-lettered), oldest first,
+     * with keyset pagination. Pass the returned nextCursor as cursor to get
+     * the next page.
+     */
+    @GetMapping("/backlog")
+    public ResponseEntity<WebhookBacklogResponse> getBacklog(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(webhookService.listBacklog(cursor, size));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Webhook endpoint is healthy");
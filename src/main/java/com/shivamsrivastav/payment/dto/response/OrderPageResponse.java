@@ -0,0 +1,45 @@
+package com.shivamsrivastav.payment.dto.response;
+
+import java.util.List;
+
+/**
+ * Order Page Response DTO
+ *
+ * One page of the order listing. Pass nextCursor back as the cursor
+ * parameter to fetch the following page; it is null on the last page.
+ *
+ * @author Shivam Srivastav
+ */
+public class OrderPageResponse {
+
+    private List<OrderSummaryResponse> orders;
+    private String nextCursor;
+
+    // ==================== Constructors ====================
+
+    public OrderPageResponse() {
+    }
+
+    public OrderPageResponse(List<OrderSummaryResponse> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public List<OrderSummaryResponse> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<OrderSummaryResponse> orders) {
+        this.orders = orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
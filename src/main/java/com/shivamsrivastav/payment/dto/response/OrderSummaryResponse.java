@@ -0,0 +1,134 @@
+package com.shivamsrivastav.payment.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.shivamsrivastav.payment.entity.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order Summary Response DTO
+ *
+ * Lightweight order row for list endpoints. Selected directly as a JPQL
+ * projection, so listing orders never loads Order entities or their
+ * payments. Payments are only filled in when explicitly requested.
+ *
+ * @author Shivam Srivastav
+ */
+public class OrderSummaryResponse {
+
+    private Long id;
+    private String orderNumber;
+    private String description;
+    private BigDecimal total;
+    private String currency;
+    private OrderStatus status;
+    private String customerEmail;
+    private String customerName;
+    private LocalDateTime createdAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<PaymentResponse> payments;
+
+    // ==================== Constructors ====================
+
+    public OrderSummaryResponse() {
+    }
+
+    public OrderSummaryResponse(Long id, String orderNumber, String description, BigDecimal total,
+            String currency, OrderStatus status, String customerEmail, String customerName,
+            LocalDateTime createdAt) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.description = description;
+        this.total = total;
+        this.currency = currency;
+        this.status = status;
+        this.customerEmail = customerEmail;
+        this.customerName = customerName;
+        this.createdAt = createdAt;
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    public void setCustomerEmail(String customerEmail) {
+        this.customerEmail = customerEmail;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public List<PaymentResponse> getPayments() {
+        return payments;
+    }
+
+    public void setPayments(List<PaymentResponse> payments) {
+        this.payments = payments;
+    }
+}
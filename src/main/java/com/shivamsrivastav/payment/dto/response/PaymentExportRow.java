@@ -0,0 +1,37 @@
+package com.shivamsrivastav.payment.dto.response;
+
+import com.shivamsrivastav.payment.entity.enums.PaymentIntent;
+import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payment Export Row
+ *
+ * One payment in the bulk export. Selected as a JPQL projection, so the
+ * export never builds managed Payment entities and the persistence
+ * context stays empty however many rows are streamed.
+ *
+ * @author Shivam Srivastav
+ */
+public record PaymentExportRow(
+        Long id,
+        Long orderId,
+        String paypalPaymentId,
+        String paypalAuthorizationId,
+        String paypalCaptureId,
+        BigDecimal amount,
+        String currency,
+        PaymentIntent paymentIntent,
+        PaymentStatus status,
+        BigDecimal capturedAmount,
+        BigDecimal refundedAmount,
+        String payerEmail,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt) {
+
+    public static final String CSV_HEADER = "id,order_id,paypal_payment_id,paypal_authorization_id,"
+            + "paypal_capture_id,amount,currency,payment_intent,status,captured_amount,refunded_amount,"
+            + "payer_email,created_at,completed_at";
+}
@@ -2,14 +2,16 @@ package com.shivamsrivastav.payment.dto.response;
 
 import com.shivamsrivastav.payment.entity.enums.PaymentIntent;
 import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+import com.shivamsrivastav.payment.money.Money;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
  * Payment Response DTO
  * 
  * Standard response for payment operations.
+ * Amounts are written by MoneyJsonComponent as PayPal money objects,
+ * {"value": "10.50", "currency_code": "USD"}.
  * 
  * @author Shivam Srivastav
  */
@@ -21,16 +23,16 @@ public class PaymentResponse {
     private String paypalCaptureId;
     private String paypalAuthorizationId;
 
-    private BigDecimal amount;
+    private Money amount;
     private String currency;
     private String description;
 
     private PaymentIntent paymentIntent;
     private PaymentStatus status;
 
-    private BigDecimal authorizedAmount;
-    private BigDecimal capturedAmount;
-    private BigDecimal refundedAmount;
+    private Money authorizedAmount;
+    private Money capturedAmount;
+    private Money refundedAmount;
 
     private String payerEmail;
     private String payerName;
@@ -48,9 +50,9 @@ public class PaymentResponse {
     }
 
     public PaymentResponse(Long id, String paypalPaymentId, String paypalOrderId, String paypalCaptureId,
-            String paypalAuthorizationId, BigDecimal amount, String currency, String description,
-            PaymentIntent paymentIntent, PaymentStatus status, BigDecimal authorizedAmount,
-            BigDecimal capturedAmount, BigDecimal refundedAmount, String payerEmail,
+            String paypalAuthorizationId, Money amount, String currency, String description,
+            PaymentIntent paymentIntent, PaymentStatus status, Money authorizedAmount,
+            Money capturedAmount, Money refundedAmount, String payerEmail,
             String payerName, String approvalUrl, LocalDateTime createdAt,
             LocalDateTime completedAt, String message) {
         this.id = id;
@@ -116,11 +118,11 @@ public class PaymentResponse {
         this.paypalAuthorizationId = paypalAuthorizationId;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -156,27 +158,27 @@ public class PaymentResponse {
         this.status = status;
     }
 
-    public BigDecimal getAuthorizedAmount() {
+    public Money getAuthorizedAmount() {
         return authorizedAmount;
     }
 
-    public void setAuthorizedAmount(BigDecimal authorizedAmount) {
+    public void setAuthorizedAmount(Money authorizedAmount) {
         this.authorizedAmount = authorizedAmount;
     }
 
-    public BigDecimal getCapturedAmount() {
+    public Money getCapturedAmount() {
         return capturedAmount;
     }
 
-    public void setCapturedAmount(BigDecimal capturedAmount) {
+    public void setCapturedAmount(Money capturedAmount) {
         this.capturedAmount = capturedAmount;
     }
 
-    public BigDecimal getRefundedAmount() {
+    public Money getRefundedAmount() {
         return refundedAmount;
     }
 
-    public void setRefundedAmount(BigDecimal refundedAmount) {
+    public void setRefundedAmount(Money refundedAmount) {
         this.refundedAmount = refundedAmount;
     }
 
@@ -240,14 +242,14 @@ public class PaymentResponse {
         private String paypalOrderId;
         private String paypalCaptureId;
         private String paypalAuthorizationId;
-        private BigDecimal amount;
+        private Money amount;
         private String currency;
         private String description;
         private PaymentIntent paymentIntent;
         private PaymentStatus status;
-        private BigDecimal authorizedAmount;
-        private BigDecimal capturedAmount;
-        private BigDecimal refundedAmount;
+        private Money authorizedAmount;
+        private Money capturedAmount;
+        private Money refundedAmount;
         private String payerEmail;
         private String payerName;
         private String approvalUrl;
@@ -283,7 +285,7 @@ public class PaymentResponse {
             return this;
         }
 
-        public PaymentResponseBuilder amount(BigDecimal amount) {
+        public PaymentResponseBuilder amount(Money amount) {
             this.amount = amount;
             return this;
         }
@@ -308,17 +310,17 @@ public class PaymentResponse {
             return this;
         }
 
-        public PaymentResponseBuilder authorizedAmount(BigDecimal authorizedAmount) {
+        public PaymentResponseBuilder authorizedAmount(Money authorizedAmount) {
             this.authorizedAmount = authorizedAmount;
             return this;
         }
 
-        public PaymentResponseBuilder capturedAmount(BigDecimal capturedAmount) {
+        public PaymentResponseBuilder capturedAmount(Money capturedAmount) {
             this.capturedAmount = capturedAmount;
             return this;
         }
 
-        public PaymentResponseBuilder refundedAmount(BigDecimal refundedAmount) {
+        public PaymentResponseBuilder refundedAmount(Money refundedAmount) {
             this.refundedAmount = refundedAmount;
             return this;
         }
@@ -0,0 +1,138 @@
+package com.shivamsrivastav.payment.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reconciliation Result DTO
+ *
+ * Summary of one reconciliation run. The full list of mismatches is
+ * written to mismatchFile; only the first few are included here.
+ *
+ * @author Shivam Srivastav
+ */
+public class ReconciliationResult {
+
+    /**
+     * Kinds of discrepancy between the report and the payments table.
+     */
+    public enum MismatchType {
+        /** Report row with no local payment. */
+        MISSING_LOCAL,
+        /** Local captured payment absent from the report. */
+        MISSING_IN_REPORT,
+        /** Local payment found by PayPal payment ID, but with a different capture ID. */
+        CAPTURE_ID_MISMATCH,
+        /** Gross amount or currency differs. */
+        AMOUNT_MISMATCH,
+        /** Settlement status differs from the local payment status. */
+        STATUS_MISMATCH,
+        /** Transaction ID appears more than once in the report. */
+        DUPLICATE_IN_REPORT
+    }
+
+    /**
+     * One discrepancy.
+     */
+    public record Mismatch(MismatchType type, String transactionId, String paypalPaymentId,
+            Long localPaymentId, String detail) {
+    }
+
+    private long reportRows;
+    private long localRows;
+    private long matched;
+    private long missingLocal;
+    private long missingInReport;
+    private long captureIdMismatches;
+    private long amountMismatches;
+    private long statusMismatches;
+    private long duplicatesInReport;
+    private String mismatchFile;
+    private List<Mismatch> sample = new ArrayList<>();
+
+    // ==================== Counting ====================
+
+    public void countReportRow() {
+        reportRows++;
+    }
+
+    public void countLocalRow() {
+        localRows++;
+    }
+
+    public void countMatched() {
+        matched++;
+    }
+
+    /**
+     * Count a mismatch and keep it in the sample if there is room.
+     */
+    public void record(Mismatch mismatch, int sampleLimit) {
+        switch (mismatch.type()) {
+            case MISSING_LOCAL -> missingLocal++;
+            case MISSING_IN_REPORT -> missingInReport++;
+            case CAPTURE_ID_MISMATCH -> captureIdMismatches++;
+            case AMOUNT_MISMATCH -> amountMismatches++;
+            case STATUS_MISMATCH -> statusMismatches++;
+            case DUPLICATE_IN_REPORT -> duplicatesInReport++;
+        }
+        if (sample.size() < sampleLimit) {
+            sample.add(mismatch);
+        }
+    }
+
+    public long getTotalMismatches() {
+        return missingLocal + missingInReport + captureIdMismatches + amountMismatches + statusMismatches
+                + duplicatesInReport;
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public long getReportRows() {
+        return reportRows;
+    }
+
+    public long getLocalRows() {
+        return localRows;
+    }
+
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getMissingLocal() {
+        return missingLocal;
+    }
+
+    public long getMissingInReport() {
+        return missingInReport;
+    }
+
+    public long getCaptureIdMismatches() {
+        return captureIdMismatches;
+    }
+
+    public long getAmountMismatches() {
+        return amountMismatches;
+    }
+
+    public long getStatusMismatches() {
+        return statusMismatches;
+    }
+
+    public long getDuplicatesInReport() {
+        return duplicatesInReport;
+    }
+
+    public String getMismatchFile() {
+        return mismatchFile;
+    }
+
+    public void setMismatchFile(String mismatchFile) {
+        this.mismatchFile = mismatchFile;
+    }
+
+    public List<Mismatch> getSample() {
+        return sample;
+    }
+}
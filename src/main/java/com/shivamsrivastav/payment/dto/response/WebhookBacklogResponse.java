@@ -0,0 +1,48 @@
+package com.shivamsrivastav.payment.dto.response;
+
+import com.shivamsrivastav.payment.repository.UnprocessedWebhookEvent;
+
+import java.util.List;
+
+/**
+ * Webhook Backlog Response DTO
+ *
+ * One page of unprocessed webhook events, oldest first. Pass nextCursor
+ * back as the cursor parameter to fetch the following page; it is null on
+ * the last page.
+ *
+ * @author Shivam Srivastav
+ */
+public class WebhookBacklogResponse {
+
+    private List<UnprocessedWebhookEvent> events;
+    private String nextCursor;
+
+    // ==================== Constructors ====================
+
+    public WebhookBacklogResponse() {
+    }
+
+    public WebhookBacklogResponse(List<UnprocessedWebhookEvent> events, String nextCursor) {
+        this.events = events;
+        this.nextCursor = nextCursor;
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public List<UnprocessedWebhookEvent> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<UnprocessedWebhookEvent> events) {
+        this.events = events;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
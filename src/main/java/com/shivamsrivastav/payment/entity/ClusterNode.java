@@ -0,0 +1,98 @@
+package com.shivamsrivastav.payment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cluster Node Entity
+ * 
+ * A running application instance, kept alive by its heartbeat.
+ * 
+ * @author Shivam Srivastav
+ */
+@Entity
+@Table(name = "cluster_nodes")
+public class ClusterNode {
+
+    @Id
+    @Column(name = "node_id")
+    private String nodeId;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt = LocalDateTime.now();
+
+    // ==================== Constructors ====================
+
+    public ClusterNode() {
+    }
+
+    public ClusterNode(String nodeId, LocalDateTime startedAt, LocalDateTime heartbeatAt) {
+        this.nodeId = nodeId;
+        this.startedAt = startedAt != null ? startedAt : LocalDateTime.now();
+        this.heartbeatAt = heartbeatAt != null ? heartbeatAt : LocalDateTime.now();
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    // ==================== Builder Pattern ====================
+
+    public static ClusterNodeBuilder builder() {
+        return new ClusterNodeBuilder();
+    }
+
+    public static class ClusterNodeBuilder {
+        private String nodeId;
+        private LocalDateTime startedAt = LocalDateTime.now();
+        private LocalDateTime heartbeatAt = LocalDateTime.now();
+
+        ClusterNodeBuilder() {
+        }
+
+        public ClusterNodeBuilder nodeId(String nodeId) {
+            this.nodeId = nodeId;
+            return this;
+        }
+
+        public ClusterNodeBuilder startedAt(LocalDateTime startedAt) {
+            this.startedAt = startedAt;
+            return this;
+        }
+
+        public ClusterNodeBuilder heartbeatAt(LocalDateTime heartbeatAt) {
+            this.heartbeatAt = heartbeatAt;
+            return this;
+        }
+
+        public ClusterNode build() {
+            return new ClusterNode(nodeId, startedAt, heartbeatAt);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.shivamsrivastav.payment.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.shivamsrivastav.payment.entity.enums.OrderStatus;
 import jakarta.persistence.*;
 
@@ -20,7 +21,8 @@ import java.util.List;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "order_number", unique = true, nullable = false)
@@ -54,6 +56,7 @@ public class Order {
     @Column(name = "customer_name")
     private String customerName;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<Payment> payments = new ArrayList<>();
 
@@ -1,10 +1,13 @@
 package com.shivamsrivastav.payment.entity;
 
 import com.shivamsrivastav.payment.entity.enums.PaymentIntent;
+import com.shivamsrivastav.payment.entity.enums.PaymentOperation;
 import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+import com.shivamsrivastav.payment.money.Money;
+import com.shivamsrivastav.payment.money.MoneyType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.CompositeType;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -28,6 +31,9 @@ import java.time.LocalDateTime;
  * - authorizedAmount: Amount authorized (held)
  * - capturedAmount: Amount actually charged
  * - refundedAmount: Amount refunded back
+ * All four are {@link Money} in the payment's currency, mapped by
+ * {@link MoneyType} onto the DECIMAL columns and the shared currency
+ * column, so sums and limits are exact minor-unit arithmetic.
  * 
  * 4. PAYMENT STATUS LIFECYCLE
  * CREATED → APPROVED → CAPTURED/AUTHORIZED → COMPLETED/REFUNDED
@@ -39,7 +45,8 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
     // ==================== PayPal Identifiers ====================
@@ -87,16 +94,14 @@ public class Payment {
     // ==================== Payment Details ====================
 
     /**
-     * Original payment amount.
+     * Original payment amount. Owns the currency column (USD, EUR, etc.);
+     * the other amounts read it.
      */
-    @Column(name = "amount", nullable = false, precision = 10, scale = 2)
-    private BigDecimal amount;
-
-    /**
-     * Currency code (USD, EUR, etc.).
-     */
-    @Column(name = "currency", length = 3)
-    private String currency = "USD";
+    @Embedded
+    @CompositeType(MoneyType.class)
+    @AttributeOverride(name = "amount", column = @Column(name = "amount", nullable = false, precision = 10, scale = 2))
+    @AttributeOverride(name = "currency", column = @Column(name = "currency", length = 3))
+    private Money amount;
 
     /**
      * Payment description shown to customer.
@@ -131,22 +136,31 @@ public class Payment {
      * Amount that was authorized (held).
      * Only applicable for AUTHORIZE intent.
      */
-    @Column(name = "authorized_amount", precision = 10, scale = 2)
-    private BigDecimal authorizedAmount;
+    @Embedded
+    @CompositeType(MoneyType.class)
+    @AttributeOverride(name = "amount", column = @Column(name = "authorized_amount", precision = 10, scale = 2))
+    @AttributeOverride(name = "currency", column = @Column(name = "currency", insertable = false, updatable = false))
+    private Money authorizedAmount;
 
     /**
      * Amount that has been captured (charged).
      * Can be less than authorized amount (partial capture).
      */
-    @Column(name = "captured_amount", precision = 10, scale = 2)
-    private BigDecimal capturedAmount = BigDecimal.ZERO;
+    @Embedded
+    @CompositeType(MoneyType.class)
+    @AttributeOverride(name = "amount", column = @Column(name = "captured_amount", precision = 10, scale = 2))
+    @AttributeOverride(name = "currency", column = @Column(name = "currency", insertable = false, updatable = false))
+    private Money capturedAmount;
 
     /**
      * Amount that has been refunded.
      * Can be built up through multiple partial refunds.
      */
-    @Column(name = "refunded_amount", precision = 10, scale = 2)
-    private BigDecimal refundedAmount = BigDecimal.ZERO;
+    @Embedded
+    @CompositeType(MoneyType.class)
+    @AttributeOverride(name = "amount", column = @Column(name = "refunded_amount", precision = 10, scale = 2))
+    @AttributeOverride(name = "currency", column = @Column(name = "currency", insertable = false, updatable = false))
+    private Money refundedAmount;
 
     /**
      * Reason for refund (if refunded).
@@ -205,6 +219,24 @@ public class Payment {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    // ==================== In-Flight Operation ====================
+
+    /**
+     * PayPal operation currently in flight for this payment, or null.
+     * Set in a short transaction before the PayPal call and cleared when
+     * the result is applied; a stale value means the process died in
+     * between and PaymentRecoveryJob must reconcile with PayPal.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "pending_operation", length = 20)
+    private PaymentOperation pendingOperation;
+
+    /**
+     * When the pending operation was started.
+     */
+    @Column(name = "pending_since")
+    private LocalDateTime pendingSince;
+
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -216,11 +248,12 @@ public class Payment {
     }
 
     public Payment(Long id, String paypalPaymentId, String paypalPayerId, String paypalOrderId,
-            String paypalCaptureId, String paypalAuthorizationId, Order order, BigDecimal amount,
-            String currency, String description, PaymentIntent paymentIntent, PaymentStatus status,
-            BigDecimal authorizedAmount, BigDecimal capturedAmount, BigDecimal refundedAmount,
+            String paypalCaptureId, String paypalAuthorizationId, Order order, Money amount,
+            String description, PaymentIntent paymentIntent, PaymentStatus status,
+            Money authorizedAmount, Money capturedAmount, Money refundedAmount,
             String refundReason, String idempotencyKey, String payerEmail, String payerName,
-            String approvalUrl, LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime completedAt) {
+            String approvalUrl, LocalDateTime createdAt, LocalDateTime updatedAt, LocalDateTime completedAt,
+            PaymentOperation pendingOperation, LocalDateTime pendingSince) {
         this.id = id;
         this.paypalPaymentId = paypalPaymentId;
         this.paypalPayerId = paypalPayerId;
@@ -229,13 +262,12 @@ public class Payment {
         this.paypalAuthorizationId = paypalAuthorizationId;
         this.order = order;
         this.amount = amount;
-        this.currency = currency != null ? currency : "USD";
         this.description = description;
         this.paymentIntent = paymentIntent != null ? paymentIntent : PaymentIntent.CAPTURE;
         this.status = status != null ? status : PaymentStatus.CREATED;
         this.authorizedAmount = authorizedAmount;
-        this.capturedAmount = capturedAmount != null ? capturedAmount : BigDecimal.ZERO;
-        this.refundedAmount = refundedAmount != null ? refundedAmount : BigDecimal.ZERO;
+        this.capturedAmount = capturedAmount != null ? capturedAmount : zero(amount);
+        this.refundedAmount = refundedAmount != null ? refundedAmount : zero(amount);
         this.refundReason = refundReason;
         this.idempotencyKey = idempotencyKey;
         this.payerEmail = payerEmail;
@@ -244,6 +276,8 @@ public class Payment {
         this.createdAt = createdAt != null ? createdAt : LocalDateTime.now();
         this.updatedAt = updatedAt != null ? updatedAt : LocalDateTime.now();
         this.completedAt = completedAt;
+        this.pendingOperation = pendingOperation;
+        this.pendingSince = pendingSince;
     }
 
     // ==================== Getters and Setters ====================
@@ -304,20 +338,19 @@ public class Payment {
         this.order = order;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
+    /**
+     * Currency of the payment, taken from its amount.
+     */
     public String getCurrency() {
-        return currency;
-    }
-
-    public void setCurrency(String currency) {
-        this.currency = currency;
+        return amount != null ? amount.currency() : null;
     }
 
     public String getDescription() {
@@ -344,27 +377,33 @@ public class Payment {
         this.status = status;
     }
 
-    public BigDecimal getAuthorizedAmount() {
+    public Money getAuthorizedAmount() {
         return authorizedAmount;
     }
 
-    public void setAuthorizedAmount(BigDecimal authorizedAmount) {
+    public void setAuthorizedAmount(Money authorizedAmount) {
         this.authorizedAmount = authorizedAmount;
     }
 
-    public BigDecimal getCapturedAmount() {
-        return capturedAmount;
+    /**
+     * Amount captured so far; zero when the column is NULL.
+     */
+    public Money getCapturedAmount() {
+        return capturedAmount != null ? capturedAmount : zero(amount);
     }
 
-    public void setCapturedAmount(BigDecimal capturedAmount) {
+    public void setCapturedAmount(Money capturedAmount) {
         this.capturedAmount = capturedAmount;
     }
 
-    public BigDecimal getRefundedAmount() {
-        return refundedAmount;
+    /**
+     * Amount refunded so far; zero when the column is NULL.
+     */
+    public Money getRefundedAmount() {
+        return refundedAmount != null ? refundedAmount : zero(amount);
     }
 
-    public void setRefundedAmount(BigDecimal refundedAmount) {
+    public void setRefundedAmount(Money refundedAmount) {
         this.refundedAmount = refundedAmount;
     }
 
@@ -432,6 +471,22 @@ public class Payment {
         this.completedAt = completedAt;
     }
 
+    public PaymentOperation getPendingOperation() {
+        return pendingOperation;
+    }
+
+    public void setPendingOperation(PaymentOperation pendingOperation) {
+        this.pendingOperation = pendingOperation;
+    }
+
+    public LocalDateTime getPendingSince() {
+        return pendingSince;
+    }
+
+    public void setPendingSince(LocalDateTime pendingSince) {
+        this.pendingSince = pendingSince;
+    }
+
     // ==================== Helper Methods ====================
 
     /**
@@ -447,8 +502,8 @@ public class Payment {
     /**
      * Get remaining amount that can be refunded.
      */
-    public BigDecimal getRefundableAmount() {
-        return capturedAmount.subtract(refundedAmount);
+    public Money getRefundableAmount() {
+        return getCapturedAmount().minus(getRefundedAmount());
     }
 
     /**
@@ -461,10 +516,30 @@ public class Payment {
     /**
      * Get remaining authorized amount that can be captured.
      */
-    public BigDecimal getCaptureableAmount() {
+    public Money getCaptureableAmount() {
         if (authorizedAmount == null)
-            return BigDecimal.ZERO;
-        return authorizedAmount.subtract(capturedAmount);
+            return zero(amount);
+        return authorizedAmount.minus(getCapturedAmount());
+    }
+
+    /**
+     * Mark a PayPal operation as started.
+     */
+    public void startOperation(PaymentOperation operation) {
+        this.pendingOperation = operation;
+        this.pendingSince = LocalDateTime.now();
+    }
+
+    /**
+     * Clear the in-flight marker once the PayPal result has been applied.
+     */
+    public void completeOperation() {
+        this.pendingOperation = null;
+        this.pendingSince = null;
+    }
+
+    private static Money zero(Money amount) {
+        return amount != null ? Money.zero(amount.currency()) : null;
     }
 
     // ==================== Builder Pattern ====================
@@ -481,14 +556,13 @@ public class Payment {
         private String paypalCaptureId;
         private String paypalAuthorizationId;
         private Order order;
-        private BigDecimal amount;
-        private String currency = "USD";
+        private Money amount;
         private String description;
         private PaymentIntent paymentIntent = PaymentIntent.CAPTURE;
         private PaymentStatus status = PaymentStatus.CREATED;
-        private BigDecimal authorizedAmount;
-        private BigDecimal capturedAmount = BigDecimal.ZERO;
-        private BigDecimal refundedAmount = BigDecimal.ZERO;
+        private Money authorizedAmount;
+        private Money capturedAmount;
+        private Money refundedAmount;
         private String refundReason;
         private String idempotencyKey;
         private String payerEmail;
@@ -497,6 +571,8 @@ public class Payment {
         private LocalDateTime createdAt = LocalDateTime.now();
         private LocalDateTime updatedAt = LocalDateTime.now();
         private LocalDateTime completedAt;
+        private PaymentOperation pendingOperation;
+        private LocalDateTime pendingSince;
 
         PaymentBuilder() {
         }
@@ -536,16 +612,11 @@ public class Payment {
             return this;
         }
 
-        public PaymentBuilder amount(BigDecimal amount) {
+        public PaymentBuilder amount(Money amount) {
             this.amount = amount;
             return this;
         }
 
-        public PaymentBuilder currency(String currency) {
-            this.currency = currency;
-            return this;
-        }
-
         public PaymentBuilder description(String description) {
             this.description = description;
             return this;
@@ -561,17 +632,17 @@ public class Payment {
             return this;
         }
 
-        public PaymentBuilder authorizedAmount(BigDecimal authorizedAmount) {
+        public PaymentBuilder authorizedAmount(Money authorizedAmount) {
             this.authorizedAmount = authorizedAmount;
             return this;
         }
 
-        public PaymentBuilder capturedAmount(BigDecimal capturedAmount) {
+        public PaymentBuilder capturedAmount(Money capturedAmount) {
             this.capturedAmount = capturedAmount;
             return this;
         }
 
-        public PaymentBuilder refundedAmount(BigDecimal refundedAmount) {
+        public PaymentBuilder refundedAmount(Money refundedAmount) {
             this.refundedAmount = refundedAmount;
             return this;
         }
@@ -616,11 +687,22 @@ public class Payment {
             return this;
         }
 
+        public PaymentBuilder pendingOperation(PaymentOperation pendingOperation) {
+            this.pendingOperation = pendingOperation;
+            return this;
+        }
+
+        public PaymentBuilder pendingSince(LocalDateTime pendingSince) {
+            this.pendingSince = pendingSince;
+            return this;
+        }
+
         public Payment build() {
             return new Payment(id, paypalPaymentId, paypalPayerId, paypalOrderId, paypalCaptureId,
-                    paypalAuthorizationId, order, amount, currency, description, paymentIntent, status,
+                    paypalAuthorizationId, order, amount, description, paymentIntent, status,
                     authorizedAmount, capturedAmount, refundedAmount, refundReason, idempotencyKey,
-                    payerEmail, payerName, approvalUrl, createdAt, updatedAt, completedAt);
+                    payerEmail, payerName, approvalUrl, createdAt, updatedAt, completedAt,
+                    pendingOperation, pendingSince);
         }
     }
 }
@@ -0,0 +1,99 @@
+package com.shivamsrivastav.payment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shard Lease Entity
+ * 
+ * Ownership of one shard of background work. ownerNode may process the
+ * shard until leaseUntil; an expired lease can be taken by another node.
+ * 
+ * @author Shivam Srivastav
+ */
+@Entity
+@Table(name = "shard_leases")
+public class ShardLease {
+
+    @Id
+    @Column(name = "shard")
+    private Integer shard;
+
+    @Column(name = "owner_node")
+    private String ownerNode;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // ==================== Constructors ====================
+
+    public ShardLease() {
+    }
+
+    public ShardLease(Integer shard, String ownerNode, LocalDateTime leaseUntil) {
+        this.shard = shard;
+        this.ownerNode = ownerNode;
+        this.leaseUntil = leaseUntil;
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public Integer getShard() {
+        return shard;
+    }
+
+    public void setShard(Integer shard) {
+        this.shard = shard;
+    }
+
+    public String getOwnerNode() {
+        return ownerNode;
+    }
+
+    public void setOwnerNode(String ownerNode) {
+        this.ownerNode = ownerNode;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    // ==================== Builder Pattern ====================
+
+    public static ShardLeaseBuilder builder() {
+        return new ShardLeaseBuilder();
+    }
+
+    public static class ShardLeaseBuilder {
+        private Integer shard;
+        private String ownerNode;
+        private LocalDateTime leaseUntil;
+
+        ShardLeaseBuilder() {
+        }
+
+        public ShardLeaseBuilder shard(Integer shard) {
+            this.shard = shard;
+            return this;
+        }
+
+        public ShardLeaseBuilder ownerNode(String ownerNode) {
+            this.ownerNode = ownerNode;
+            return this;
+        }
+
+        public ShardLeaseBuilder leaseUntil(LocalDateTime leaseUntil) {
+            this.leaseUntil = leaseUntil;
+            return this;
+        }
+
+        public ShardLease build() {
+            return new ShardLease(shard, ownerNode, leaseUntil);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.shivamsrivastav.payment.entity;
+
+import com.shivamsrivastav.payment.entity.enums.SubscriptionChargeStatus;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Subscription Charge Entity
+ *
+ * One billing of a subscription for one billing date.
+ *
+ * CONCEPT: Charge reservation
+ * The row is inserted before PayPal is called, and (subscription_id,
+ * billing_date) is unique, so a billing date can only ever be charged
+ * through this row. Its requestId is sent as PayPal-Request-Id; retrying
+ * a charge whose outcome is unknown with the same id makes PayPal return
+ * the original result instead of charging again.
+ *
+ * @author Shivam Srivastav
+ */
+@Entity
+@Table(name = "subscription_charges")
+public class SubscriptionCharge {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscription_charges_seq")
+    @SequenceGenerator(name = "subscription_charges_seq", sequenceName = "subscription_charges_seq",
+            allocationSize = 50)
+    private Long id;
+
+    @Column(name = "subscription_id", nullable = false)
+    private Long subscriptionId;
+
+    @Column(name = "billing_date", nullable = false)
+    private LocalDate billingDate;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "currency", nullable = false)
+    private String currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private SubscriptionChargeStatus status = SubscriptionChargeStatus.PENDING;
+
+    @Column(name = "request_id", nullable = false)
+    private String requestId;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "paypal_payment_id")
+    private String paypalPaymentId;
+
+    @Column(name = "paypal_sale_id")
+    private String paypalSaleId;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // ==================== Constructors ====================
+
+    public SubscriptionCharge() {
+    }
+
+    public SubscriptionCharge(Long id, Long subscriptionId, LocalDate billingDate, BigDecimal amount,
+            String currency, SubscriptionChargeStatus status, String requestId, int attempts,
+            String paypalPaymentId, String paypalSaleId, String errorMessage,
+            LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.subscriptionId = subscriptionId;
+        this.billingDate = billingDate;
+        this.amount = amount;
+        this.currency = currency;
+        this.status = status != null ? status : SubscriptionChargeStatus.PENDING;
+        this.requestId = requestId;
+        this.attempts = attempts;
+        this.paypalPaymentId = paypalPaymentId;
+        this.paypalSaleId = paypalSaleId;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt != null ? createdAt : LocalDateTime.now();
+        this.updatedAt = updatedAt != null ? updatedAt : LocalDateTime.now();
+    }
+
+    // ==================== Getters and Setters ====================
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public void setSubscriptionId(Long subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    public LocalDate getBillingDate() {
+        return billingDate;
+    }
+
+    public void setBillingDate(LocalDate billingDate) {
+        this.billingDate = billingDate;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public SubscriptionChargeStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SubscriptionChargeStatus status) {
+        this.status = status;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getPaypalPaymentId() {
+        return paypalPaymentId;
+    }
+
+    public void setPaypalPaymentId(String paypalPaymentId) {
+        this.paypalPaymentId = paypalPaymentId;
+    }
+
+    public String getPaypalSaleId() {
+        return paypalSaleId;
+    }
+
+    public void setPaypalSaleId(String paypalSaleId) {
+        this.paypalSaleId = paypalSaleId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // ==================== Builder Pattern ====================
+
+    public static SubscriptionChargeBuilder builder() {
+        return new SubscriptionChargeBuilder();
+    }
+
+    public static class SubscriptionChargeBuilder {
+        private Long id;
+        private Long subscriptionId;
+        private LocalDate billingDate;
+        private BigDecimal amount;
+        private String currency;
+        private SubscriptionChargeStatus status = SubscriptionChargeStatus.PENDING;
+        private String requestId;
+        private int attempts = 0;
+        private String paypalPaymentId;
+        private String paypalSaleId;
+        private String errorMessage;
+        private LocalDateTime createdAt = LocalDateTime.now();
+        private LocalDateTime updatedAt = LocalDateTime.now();
+
+        SubscriptionChargeBuilder() {
+        }
+
+        public SubscriptionChargeBuilder id(Long id) {
+            this.id = id;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder subscriptionId(Long subscriptionId) {
+            this.subscriptionId = subscriptionId;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder billingDate(LocalDate billingDate) {
+            this.billingDate = billingDate;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder amount(BigDecimal amount) {
+            this.amount = amount;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder currency(String currency) {
+            this.currency = currency;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder status(SubscriptionChargeStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder requestId(String requestId) {
+            this.requestId = requestId;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder attempts(int attempts) {
+            this.attempts = attempts;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder paypalPaymentId(String paypalPaymentId) {
+            this.paypalPaymentId = paypalPaymentId;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder paypalSaleId(String paypalSaleId) {
+            this.paypalSaleId = paypalSaleId;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder errorMessage(String errorMessage) {
+            this.errorMessage = errorMessage;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder createdAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public SubscriptionChargeBuilder updatedAt(LocalDateTime updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
+
+        public SubscriptionCharge build() {
+            return new SubscriptionCharge(id, subscriptionId, billingDate, amount, currency, status,
+                    requestId, attempts, paypalPaymentId, paypalSaleId, errorMessage, createdAt, updatedAt);
+        }
+    }
+}
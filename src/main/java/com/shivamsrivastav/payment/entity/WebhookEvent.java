@@ -1,6 +1,7 @@
 package com.shivamsrivastav.payment.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 
 import java.time.LocalDateTime;
 
@@ -9,6 +10,19 @@ import java.time.LocalDateTime;
  * 
  * Stores received webhook events for audit and idempotency.
  * 
+ * The table is partitioned by month on receivedAt (primary key id plus
+ * received_at); event IDs are kept unique through webhook_event_keys.
+ * 
+ * Unprocessed events are due for (re)processing at nextAttemptAt. After
+ * too many failed attempts an event is dead-lettered and left alone.
+ * 
+ * The raw payload is kept in exactly one of payload (TEXT), payloadGzip
+ * (gzip-compressed UTF-8, BYTEA) or payloadJsonb (JSONB), depending on
+ * webhook.payload.storage when the event was received; see
+ * WebhookPayloadCodec. The payload columns are fetched lazily (bytecode
+ * enhancement), so loading events to claim or list them does not read
+ * the payloads.
+ * 
  * @author Shivam Srivastav
  */
 @Entity
@@ -16,10 +30,11 @@ import java.time.LocalDateTime;
 public class WebhookEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhook_events_seq")
+    @SequenceGenerator(name = "webhook_events_seq", sequenceName = "webhook_events_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "event_id", unique = true, nullable = false)
+    @Column(name = "event_id", nullable = false)
     private String eventId;
 
     @Column(name = "event_type", nullable = false)
@@ -31,35 +46,64 @@ public class WebhookEvent {
     @Column(name = "resource_id")
     private String resourceId;
 
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "payload", columnDefinition = "TEXT")
     private String payload;
 
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "payload_gzip")
+    private byte[] payloadGzip;
+
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "payload_jsonb", columnDefinition = "JSONB")
+    @ColumnTransformer(read = "CAST(payload_jsonb AS TEXT)", write = "CAST(? AS JSONB)")
+    private String payloadJsonb;
+
     @Column(name = "processed")
     private boolean processed = false;
 
-    @Column(name = "received_at")
+    @Column(name = "received_at", nullable = false, updatable = false)
     private LocalDateTime receivedAt = LocalDateTime.now();
 
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "retry_count")
+    private int retryCount = 0;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "dead_letter", nullable = false)
+    private boolean deadLetter = false;
+
     // ==================== Constructors ====================
 
     public WebhookEvent() {
     }
 
     public WebhookEvent(Long id, String eventId, String eventType, String resourceType,
-            String resourceId, String payload, boolean processed,
-            LocalDateTime receivedAt, LocalDateTime processedAt) {
+            String resourceId, String payload, byte[] payloadGzip, String payloadJsonb, boolean processed,
+            LocalDateTime receivedAt, LocalDateTime processedAt, String errorMessage, int retryCount,
+            LocalDateTime nextAttemptAt, boolean deadLetter) {
         this.id = id;
         this.eventId = eventId;
         this.eventType = eventType;
         this.resourceType = resourceType;
         this.resourceId = resourceId;
         this.payload = payload;
+        this.payloadGzip = payloadGzip;
+        this.payloadJsonb = payloadJsonb;
         this.processed = processed;
         this.receivedAt = receivedAt != null ? receivedAt : LocalDateTime.now();
         this.processedAt = processedAt;
+        this.errorMessage = errorMessage;
+        this.retryCount = retryCount;
+        this.nextAttemptAt = nextAttemptAt;
+        this.deadLetter = deadLetter;
     }
 
     // ==================== Getters and Setters ====================
@@ -112,6 +156,22 @@ public class WebhookEvent {
         this.payload = payload;
     }
 
+    public byte[] getPayloadGzip() {
+        return payloadGzip;
+    }
+
+    public void setPayloadGzip(byte[] payloadGzip) {
+        this.payloadGzip = payloadGzip;
+    }
+
+    public String getPayloadJsonb() {
+        return payloadJsonb;
+    }
+
+    public void setPayloadJsonb(String payloadJsonb) {
+        this.payloadJsonb = payloadJsonb;
+    }
+
     public boolean isProcessed() {
         return processed;
     }
@@ -136,6 +196,38 @@ public class WebhookEvent {
         this.processedAt = processedAt;
     }
 
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public boolean isDeadLetter() {
+        return deadLetter;
+    }
+
+    public void setDeadLetter(boolean deadLetter) {
+        this.deadLetter = deadLetter;
+    }
+
     // ==================== Builder Pattern ====================
 
     public static WebhookEventBuilder builder() {
@@ -149,9 +241,15 @@ public class WebhookEvent {
         private String resourceType;
         private String resourceId;
         private String payload;
+        private byte[] payloadGzip;
+        private String payloadJsonb;
         private boolean processed = false;
         private LocalDateTime receivedAt = LocalDateTime.now();
         private LocalDateTime processedAt;
+        private String errorMessage;
+        private int retryCount = 0;
+        private LocalDateTime nextAttemptAt;
+        private boolean deadLetter = false;
 
         WebhookEventBuilder() {
         }
@@ -186,6 +284,16 @@ public class WebhookEvent {
             return this;
         }
 
+        public WebhookEventBuilder payloadGzip(byte[] payloadGzip) {
+            this.payloadGzip = payloadGzip;
+            return this;
+        }
+
+        public WebhookEventBuilder payloadJsonb(String payloadJsonb) {
+            this.payloadJsonb = payloadJsonb;
+            return this;
+        }
+
         public WebhookEventBuilder processed(boolean processed) {
             this.processed = processed;
             return this;
@@ -201,9 +309,30 @@ public class WebhookEvent {
             return this;
         }
 
+        public WebhookEventBuilder errorMessage(String errorMessage) {
+            this.errorMessage = errorMessage;
+            return this;
+        }
+
+        public WebhookEventBuilder retryCount(int retryCount) {
+            this.retryCount = retryCount;
+            return this;
+        }
+
+        public WebhookEventBuilder nextAttemptAt(LocalDateTime nextAttemptAt) {
+            this.nextAttemptAt = nextAttemptAt;
+            return this;
+        }
+
+        public WebhookEventBuilder deadLetter(boolean deadLetter) {
+            this.deadLetter = deadLetter;
+            return this;
+        }
+
         public WebhookEvent build() {
-            return new WebhookEvent(id, eventId, eventType, resourceType, resourceId, payload,
-                    processed, receivedAt, processedAt);
+            return new WebhookEvent(id, eventId, eventType, resourceType, resourceId, payload, payloadGzip,
+                    payloadJsonb, processed, receivedAt, processedAt, errorMessage, retryCount, nextAttemptAt,
+                    deadLetter);
         }
     }
 }
@@ -1,5 +1,8 @@
 package com.shivamsrivastav.payment.entity.enums;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
 /**
  * Billing Cycle Enum
  * 
@@ -37,5 +40,43 @@ public enum BillingCycle {
     /**
      * Bill every year.
      */
-    YEARLY
+    YEARLY;
+
+    /**
+     * Date of the billing after the given one.
+     *
+     * Month-based cycles are counted from the anchor (the subscription's
+     * start date), not from the previous billing date, so a day clamped to
+     * a short month comes back: Jan 31, Feb 28/29, Mar 31, Apr 30.
+     * Adding a month to the clamped date instead would stay on the 28th.
+     *
+     * @param anchor   first billing date of the subscription; if null or
+     *                 after date, date itself is the anchor
+     * @param date     current billing date
+     * @param interval number of cycles between billings (1 = every cycle)
+     */
+    public LocalDate next(LocalDate anchor, LocalDate date, int interval) {
+        int n = Math.max(1, interval);
+        if (this == DAILY) {
+            return date.plusDays(n);
+        }
+        if (this == WEEKLY) {
+            return date.plusWeeks(n);
+        }
+        long months = switch (this) {
+            case QUARTERLY -> 3L * n;
+            case SEMI_ANNUALLY -> 6L * n;
+            case YEARLY -> 12L * n;
+            default -> n;
+        };
+
+        LocalDate start = anchor != null && !anchor.isAfter(date) ? anchor : date;
+        long cycles = ChronoUnit.MONTHS.between(start, date) / months;
+        LocalDate next = start.plusMonths(cycles * months);
+        while (!next.isAfter(date)) {
+            cycles++;
+            next = start.plusMonths(cycles * months);
+        }
+        return next;
+    }
 }
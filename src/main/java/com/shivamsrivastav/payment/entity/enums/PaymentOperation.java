@@ -0,0 +1,51 @@
+package com.shivamsrivastav.payment.entity.enums;
+
+/**
+ * Payment Operation Enum
+ * 
+ * Remote PayPal operations performed on a payment.
+ * 
+ * While a call to PayPal is in flight, the payment row records which
+ * operation was started (pending_operation) so that a crash between the
+ * PayPal call and the local update can be detected and recovered.
+ * 
+ * @author Shivam Srivastav
+ */
+public enum PaymentOperation {
+
+    /**
+     * Creating the payment at PayPal (before the approval redirect).
+     */
+    CREATE,
+
+    /**
+     * Executing the payment after the payer approved it.
+     */
+    EXECUTE,
+
+    /**
+     * Capturing previously authorized funds.
+     */
+    CAPTURE,
+
+    /**
+     * Refunding a sale or capture.
+     */
+    REFUND,
+
+    /**
+     * Voiding an authorization.
+     */
+    VOID,
+
+    /**
+     * Charging a subscription's billing agreement (merchant-initiated).
+     */
+    CHARGE,
+
+    /**
+     * Reading a payment's current state from PayPal (recovery, stale
+     * authorization sweep). Never recorded as a pending operation.
+     */
+    LOOKUP
+}
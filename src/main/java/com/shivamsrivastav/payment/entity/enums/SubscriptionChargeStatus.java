@@ -0,0 +1,28 @@
+package com.shivamsrivastav.payment.entity.enums;
+
+/**
+ * Subscription Charge Status Enum
+ * 
+ * Tracks one billing of a subscription.
+ * 
+ * @author Shivam Srivastav
+ */
+public enum SubscriptionChargeStatus {
+
+    /**
+     * Charge reserved; the PayPal call has not completed (or its outcome
+     * is unknown). Retried with the same PayPal request id.
+     */
+    PENDING,
+
+    /**
+     * PayPal accepted the charge and the next billing date was advanced.
+     */
+    COMPLETED,
+
+    /**
+     * PayPal declined the charge. Retried with a new request id until the
+     * attempt limit is reached.
+     */
+    FAILED
+}
@@ -0,0 +1,222 @@
+package com.shivamsrivastav.payment.money;
+
+import com.shivamsrivastav.payment.exception.PaymentException;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Money
+ *
+ * Immutable amount of money held as a long count of minor units (cents
+ * for USD, yen for JPY) plus an ISO 4217 currency code.
+ *
+ * CONCEPT: Currency exponent
+ * The number of decimals is a property of the currency, not of the value:
+ * USD and EUR use 2, JPY uses 0. PayPal also accepts no decimals for HUF
+ * and TWD, although ISO lists 2. Amounts are validated against this
+ * exponent when they enter ({@link #of(BigDecimal, String)}), so "10.001"
+ * USD or "10.5" JPY is rejected before reaching PayPal rather than being
+ * rounded there, and {@link #toPlainString()} always prints the number of
+ * decimals PayPal expects.
+ *
+ * Arithmetic and comparison are plain long operations (overflow-checked);
+ * mixing currencies is a programming error and throws
+ * IllegalArgumentException.
+ *
+ * Payment amounts are held as Money: the entity maps them with
+ * {@link MoneyType} onto the DECIMAL columns, and response DTOs are
+ * written by {@link MoneyJsonComponent}. Request DTOs carry a BigDecimal
+ * and a currency and are converted with {@link #of(BigDecimal, String)}
+ * where they enter the service.
+ *
+ * @author Shivam Srivastav
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Currencies PayPal only accepts without decimals. */
+    private static final Map<String, Integer> PAYPAL_EXPONENTS = Map.of("HUF", 0, "TWD", 0);
+
+    private static final Map<String, Integer> EXPONENTS = new ConcurrentHashMap<>();
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private final long minorUnits;
+    private final String currency;
+
+    private Money(long minorUnits, String currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    // ==================== Factories ====================
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        exponent(currency);
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money zero(String currency) {
+        return ofMinor(0L, currency);
+    }
+
+    /**
+     * Exact conversion from a decimal amount.
+     *
+     * @throws PaymentException if the amount has more decimals than the
+     *                          currency allows, or does not fit in a long
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        int exponent = exponent(currency);
+        try {
+            return new Money(amount.movePointRight(exponent).longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new PaymentException("Invalid " + currency + " amount: " + amount.toPlainString()
+                    + " (at most " + exponent + " decimals)");
+        }
+    }
+
+    /**
+     * Conversion rounding half-up to the currency's decimals, for amounts
+     * that were already accepted and only need formatting for PayPal.
+     */
+    public static Money rounded(BigDecimal amount, String currency) {
+        int exponent = exponent(currency);
+        return new Money(amount.setScale(exponent, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                currency);
+    }
+
+    /**
+     * Number of decimals of the currency as PayPal uses them.
+     *
+     * @throws PaymentException for unknown currency codes
+     */
+    public static int exponent(String currency) {
+        if (currency == null) {
+            throw new PaymentException("Currency is required");
+        }
+        Integer cached = EXPONENTS.get(currency);
+        if (cached != null) {
+            return cached;
+        }
+        int exponent;
+        try {
+            exponent = PAYPAL_EXPONENTS.getOrDefault(currency,
+                    Math.max(0, Currency.getInstance(currency).getDefaultFractionDigits()));
+        } catch (IllegalArgumentException e) {
+            throw new PaymentException("Unsupported currency: " + currency);
+        }
+        EXPONENTS.put(currency, exponent);
+        return exponent;
+    }
+
+    // ==================== Arithmetic ====================
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money min(Money other) {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0L;
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0L;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0L;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    // ==================== Conversion ====================
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public String currency() {
+        return currency;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, exponent(currency));
+    }
+
+    /**
+     * The amount with exactly the currency's decimals, e.g. "10.50" USD,
+     * "1050" JPY: the format of PayPal's amount "total"/"value" fields.
+     */
+    public String toPlainString() {
+        int exponent = exponent(currency);
+        if (exponent == 0) {
+            return Long.toString(minorUnits);
+        }
+        long scale = POWERS_OF_TEN[exponent];
+        long major = Math.abs(minorUnits / scale);
+        long fraction = Math.abs(minorUnits % scale);
+
+        StringBuilder text = new StringBuilder(24);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        text.append(major).append('.');
+        String digits = Long.toString(fraction);
+        for (int i = digits.length(); i < exponent; i++) {
+            text.append('0');
+        }
+        return text.append(digits).toString();
+    }
+
+    // ==================== Object ====================
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money other)) {
+            return false;
+        }
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + currency;
+    }
+}
@@ -0,0 +1,56 @@
+package com.shivamsrivastav.payment.money;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Money JSON Component
+ *
+ * Jackson (de)serialization of {@link Money} in PayPal's money shape:
+ * {"value": "10.50", "currency_code": "USD"}. The value is a string with
+ * exactly the currency's decimals, so no precision is lost to doubles.
+ * Registered with Spring's ObjectMapper through @JsonComponent.
+ *
+ * @author Shivam Srivastav
+ */
+@JsonComponent
+public class MoneyJsonComponent {
+
+    public static class Serializer extends JsonSerializer<Money> {
+
+        @Override
+        public void serialize(Money money, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("value", money.toPlainString());
+            gen.writeStringField("currency_code", money.currency());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Money> {
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonNode node = parser.readValueAsTree();
+            JsonNode value = node.path("value");
+            JsonNode currency = node.path("currency_code");
+            if (!value.isValueNode() || !currency.isTextual()) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            try {
+                return Money.of(new BigDecimal(value.asText()), currency.asText());
+            } catch (NumberFormatException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, value.asText(), "not a decimal amount");
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.shivamsrivastav.payment.money;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.ValueAccess;
+import org.hibernate.usertype.CompositeUserType;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Money Type
+ *
+ * Maps a {@link Money} attribute to two columns, a DECIMAL amount and the
+ * currency code, so entities hold Money while the schema keeps its
+ * DECIMAL(10,2) columns. The DECIMAL is converted to minor units once,
+ * when the row is loaded, and back when it is written.
+ *
+ * Columns are named with @AttributeOverride on the attribute:
+ * "amount" for the value and "currency" for the code. Several amounts of
+ * one row may share the currency column; all but one map it with
+ * insertable = false, updatable = false.
+ *
+ * @author Shivam Srivastav
+ */
+public class MoneyType implements CompositeUserType<Money> {
+
+    /**
+     * Column layout of a Money attribute. Properties are indexed in
+     * alphabetical order: 0 = amount, 1 = currency.
+     */
+    public static class MoneyColumns {
+        BigDecimal amount;
+        String currency;
+    }
+
+    @Override
+    public Object getPropertyValue(Money component, int property) {
+        return switch (property) {
+            case 0 -> component.toBigDecimal();
+            case 1 -> component.currency();
+            default -> throw new IllegalArgumentException("Unknown Money property index " + property);
+        };
+    }
+
+    @Override
+    public Money instantiate(ValueAccess values, SessionFactoryImplementor sessionFactory) {
+        BigDecimal amount = values.getValue(0, BigDecimal.class);
+        String currency = values.getValue(1, String.class);
+        if (amount == null || currency == null) {
+            return null;
+        }
+        return Money.of(amount, currency);
+    }
+
+    @Override
+    public Class<?> embeddable() {
+        return MoneyColumns.class;
+    }
+
+    @Override
+    public Class<Money> returnedClass() {
+        return Money.class;
+    }
+
+    @Override
+    public boolean equals(Money x, Money y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Money x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Money deepCopy(Money value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Money value) {
+        return value;
+    }
+
+    @Override
+    public Money assemble(Serializable cached, Object owner) {
+        return (Money) cached;
+    }
+
+    @Override
+    public Money replace(Money detached, Money managed, Object owner) {
+        return detached;
+    }
+}
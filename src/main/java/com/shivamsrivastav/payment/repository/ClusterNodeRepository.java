@@ -0,0 +1,41 @@
+package com.shivamsrivastav.payment.repository;
+
+import com.shivamsrivastav.payment.entity.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Cluster Node Repository
+ * 
+ * Timestamps are taken from the database clock so that nodes with skewed
+ * clocks still agree on who is alive.
+ * 
+ * @author Shivam Srivastav
+ */
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO cluster_nodes (node_id, started_at, heartbeat_at) VALUES (:nodeId, now(), now()) "
+            + "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()", nativeQuery = true)
+    int heartbeat(@Param("nodeId") String nodeId);
+
+    @Modifying
+    @Query(value = "DELETE FROM cluster_nodes WHERE heartbeat_at < now() - make_interval(secs => :ttlSeconds)",
+            nativeQuery = true)
+    int deleteStale(@Param("ttlSeconds") long ttlSeconds);
+
+    /**
+     * Live node IDs in a stable order; a node's position in this list
+     * decides which shards it owns.
+     */
+    @Query(value = "SELECT node_id FROM cluster_nodes "
+            + "WHERE heartbeat_at >= now() - make_interval(secs => :ttlSeconds) ORDER BY node_id",
+            nativeQuery = true)
+    List<String> findLiveNodeIds(@Param("ttlSeconds") long ttlSeconds);
+}
@@ -0,0 +1,11 @@
+package com.shivamsrivastav.payment.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Keyset position of a subscription in the billing scan.
+ * 
+ * @author Shivam Srivastav
+ */
+public record DueSubscription(Long id, LocalDate nextBillingDate) {
+}
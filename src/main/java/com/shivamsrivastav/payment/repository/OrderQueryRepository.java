@@ -0,0 +1,30 @@
+package com.shivamsrivastav.payment.repository;
+
+import com.shivamsrivastav.payment.dto.response.OrderSummaryResponse;
+import com.shivamsrivastav.payment.entity.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order Query Repository
+ *
+ * Custom order queries that Spring Data cannot derive, mixed into
+ * {@link OrderRepository}.
+ *
+ * @author Shivam Srivastav
+ */
+public interface OrderQueryRepository {
+
+    /**
+     * One page of order summaries, newest first, ordered by (created_at, id).
+     *
+     * @param status          optional status filter
+     * @param customerEmail   optional customer email filter
+     * @param afterCreatedAt  created_at of the last row of the previous page, or null
+     * @param afterId         id of the last row of the previous page, or null
+     * @param limit           maximum number of rows
+     */
+    List<OrderSummaryResponse> findSummaries(OrderStatus status, String customerEmail,
+            LocalDateTime afterCreatedAt, Long afterId, int limit);
+}
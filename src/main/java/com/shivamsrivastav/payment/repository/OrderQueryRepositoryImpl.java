@@ -0,0 +1,79 @@
+package com.shivamsrivastav.payment.repository;
+
+import com.shivamsrivastav.payment.dto.response.OrderSummaryResponse;
+import com.shivamsrivastav.payment.entity.Order;
+import com.shivamsrivastav.payment.entity.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Order Query Repository Implementation
+ *
+ * Builds the listing query with only the filters that are actually set,
+ * so each combination gets a plain WHERE clause the planner can match to
+ * an index, instead of "(:param IS NULL OR ...)" predicates.
+ *
+ * Keyset pagination: the next page starts strictly after the last
+ * (created_at, id) seen, so deep pages cost the same as the first one.
+ *
+ * @author Shivam Srivastav
+ */
+public class OrderQueryRepositoryImpl implements OrderQueryRepository {
+
+    private final EntityManager entityManager;
+
+    public OrderQueryRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<OrderSummaryResponse> findSummaries(OrderStatus status, String customerEmail,
+            LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummaryResponse> query = cb.createQuery(OrderSummaryResponse.class);
+        Root<Order> order = query.from(Order.class);
+
+        query.select(cb.construct(OrderSummaryResponse.class,
+                order.get("id"),
+                order.get("orderNumber"),
+                order.get("description"),
+                order.get("total"),
+                order.get("currency"),
+                order.get("status"),
+                order.get("customerEmail"),
+                order.get("customerName"),
+                order.get("createdAt")));
+
+        List<Predicate> where = new ArrayList<>();
+        if (status != null) {
+            where.add(cb.equal(order.get("status"), status));
+        }
+        if (customerEmail != null) {
+            where.add(cb.equal(order.get("customerEmail"), customerEmail));
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            // (created_at, id) < (:afterCreatedAt, :afterId); the redundant
+            // created_at bound gives the planner an index range to scan
+            where.add(cb.lessThanOrEqualTo(order.get("createdAt"), afterCreatedAt));
+            where.add(cb.or(
+                    cb.lessThan(order.get("createdAt"), afterCreatedAt),
+                    cb.and(
+                            cb.equal(order.get("createdAt"), afterCreatedAt),
+                            cb.lessThan(order.get("id"), afterId))));
+        }
+
+        query.where(where.toArray(new Predicate[0]));
+        query.orderBy(cb.desc(order.get("createdAt")), cb.desc(order.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -11,10 +11,12 @@ import java.util.Optional;
 /**
  * Order Repository
  * 
+ * Listing queries live in {@link OrderQueryRepository}.
+ * 
  * @author Shivam Srivastav
  */
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderQueryRepository {
 
     Optional<Order> findByOrderNumber(String orderNumber);
 
@@ -1,12 +1,25 @@
 package com.shivamsrivastav.payment.repository;
 
+import com.shivamsrivastav.payment.dto.response.PaymentExportRow;
 import com.shivamsrivastav.payment.entity.Payment;
 import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Payment Repository
@@ -20,6 +33,25 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     Optional<Payment> findByPaypalOrderId(String paypalOrderId);
 
+    Optional<Payment> findByPaypalAuthorizationId(String paypalAuthorizationId);
+
+    Optional<Payment> findByPaypalCaptureId(String paypalCaptureId);
+
+    // Row-locking variants used when starting a PayPal operation, so two
+    // concurrent requests cannot both claim the same payment.
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Payment> findForUpdateByPaypalPaymentId(String paypalPaymentId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Payment> findForUpdateByPaypalAuthorizationId(String paypalAuthorizationId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Payment> findForUpdateByPaypalCaptureId(String paypalCaptureId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Payment> findForUpdateById(Long id);
+
     Optional<Payment> findByIdempotencyKey(String idempotencyKey);
 
     List<Payment> findByStatus(PaymentStatus status);
@@ -27,4 +59,158 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByPayerEmail(String payerEmail);
 
     boolean existsByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Payments whose PayPal operation was started before the cutoff and
+     * never completed (process crashed between the two local transactions),
+     * limited to the given shards (id % shardCount).
+     */
+    @Query("SELECT p.id FROM Payment p WHERE p.pendingOperation IS NOT NULL AND p.pendingSince < :cutoff "
+            + "AND MOD(p.id, :shardCount) IN :shards "
+            + "ORDER BY p.pendingSince ASC")
+    List<Long> findStalePendingIds(@Param("cutoff") LocalDateTime cutoff, @Param("shardCount") int shardCount,
+            @Param("shards") Collection<Integer> shards, Pageable pageable);
+
+    /**
+     * Payments of several orders in one query (order listing with payments).
+     */
+    @Query("SELECT p FROM Payment p WHERE p.order.id IN :orderIds ORDER BY p.createdAt ASC, p.id ASC")
+    List<Payment> findByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    // ==================== Webhook state updates ====================
+    // Single UPDATE statements keyed on indexed PayPal IDs. The status
+    // guard only lets a payment move forward (AUTHORIZED -> CAPTURED ->
+    // PARTIALLY_REFUNDED -> REFUNDED, or -> VOIDED), so an event that
+    // arrives late or twice matches no row. A payment with a PayPal call
+    // in flight (pending_operation set) is not touched either: the API
+    // flow is about to apply the same result, and the event is retried
+    // once it has. Each returns the idempotency keys of the rows it
+    // changed, for response cache eviction.
+
+    /**
+     * PAYMENT.CAPTURE.COMPLETED: record the capture in payment_captures
+     * and add its amount to captured_amount unless that capture ID was
+     * already recorded, so partial captures add up and a repeated capture
+     * adds nothing. A final capture moves the payment to CAPTURED.
+     */
+    @Query(value = "WITH target AS (SELECT id FROM payments "
+            + "WHERE (paypal_capture_id = :captureId OR paypal_payment_id = :paypalPaymentId) "
+            + "AND status IN ('CREATED', 'PENDING', 'APPROVED', 'AUTHORIZED') "
+            + "AND pending_operation IS NULL LIMIT 1 FOR UPDATE), "
+            + "recorded AS (INSERT INTO payment_captures (capture_id, payment_id, amount, captured_at) "
+            + "SELECT :captureId, id, :amount, now() FROM target "
+            + "ON CONFLICT (capture_id) DO NOTHING RETURNING amount), "
+            + "updated AS (UPDATE payments p SET paypal_capture_id = :captureId, "
+            + "captured_amount = COALESCE(p.captured_amount, 0) + COALESCE((SELECT SUM(amount) FROM recorded), 0), "
+            + "status = CASE WHEN :finalCapture THEN 'CAPTURED' ELSE p.status END, "
+            + "completed_at = CASE WHEN :finalCapture THEN COALESCE(p.completed_at, now()) ELSE p.completed_at END, "
+            + "updated_at = now() "
+            + "FROM target WHERE p.id = target.id "
+            + "RETURNING p.idempotency_key) "
+            + "SELECT idempotency_key FROM updated", nativeQuery = true)
+    List<String> applyCaptureCompleted(@Param("captureId") String captureId,
+            @Param("paypalPaymentId") String paypalPaymentId, @Param("amount") BigDecimal amount,
+            @Param("finalCapture") boolean finalCapture);
+
+    /**
+     * PAYMENT.CAPTURE.REFUNDED: raise refunded_amount to PayPal's running
+     * total for the capture (never lower it) and mark the linked order
+     * REFUNDED, in one statement.
+     */
+    @Query(value = "WITH updated AS (UPDATE payments SET "
+            + "refunded_amount = :totalRefunded, "
+            + "status = CASE WHEN :totalRefunded >= COALESCE(NULLIF(captured_amount, 0), amount) "
+            + "THEN 'REFUNDED' ELSE 'PARTIALLY_REFUNDED' END, "
+            + "updated_at = now() "
+            + "WHERE paypal_capture_id = :captureId "
+            + "AND status IN ('CAPTURED', 'COMPLETED', 'PARTIALLY_REFUNDED') "
+            + "AND COALESCE(refunded_amount, 0) < :totalRefunded "
+            + "AND pending_operation IS NULL "
+            + "RETURNING order_id, idempotency_key), "
+            + "updated_orders AS (UPDATE orders SET status = 'REFUNDED', updated_at = now() "
+            + "WHERE id IN (SELECT order_id FROM updated)) "
+            + "SELECT idempotency_key FROM updated", nativeQuery = true)
+    List<String> applyCaptureRefunded(@Param("captureId") String captureId,
+            @Param("totalRefunded") BigDecimal totalRefunded);
+
+    /**
+     * Record a capture made through the API or found by recovery.
+     *
+     * @return the capture ID if it was new, empty if it was already
+     *         recorded (its amount is then already in captured_amount)
+     */
+    @Query(value = "WITH recorded AS (INSERT INTO payment_captures (capture_id, payment_id, amount, captured_at) "
+            + "VALUES (:captureId, :paymentId, :amount, now()) "
+            + "ON CONFLICT (capture_id) DO NOTHING RETURNING capture_id) "
+            + "SELECT capture_id FROM recorded", nativeQuery = true)
+    List<String> recordCapture(@Param("captureId") String captureId, @Param("paymentId") Long paymentId,
+            @Param("amount") BigDecimal amount);
+
+    /**
+     * PAYMENT.AUTHORIZATION.VOIDED: void a not yet captured payment.
+     */
+    @Query(value = "WITH updated AS (UPDATE payments SET status = 'VOIDED', updated_at = now() "
+            + "WHERE paypal_authorization_id = :authorizationId "
+            + "AND status IN ('CREATED', 'PENDING', 'APPROVED', 'AUTHORIZED') "
+            + "AND pending_operation IS NULL "
+            + "RETURNING idempotency_key) "
+            + "SELECT idempotency_key FROM updated", nativeQuery = true)
+    List<String> applyAuthorizationVoided(@Param("authorizationId") String authorizationId);
+
+    /**
+     * AUTHORIZED payments created before the cutoff with no operation in
+     * flight, after the (createdAt, id) keyset position and limited to the
+     * given shards. Served by idx_payments_status_created.
+     */
+    @Query("SELECT new com.shivamsrivastav.payment.repository.StaleAuthorization(p.id, p.createdAt) "
+            + "FROM Payment p WHERE p.status = com.shivamsrivastav.payment.entity.enums.PaymentStatus.AUTHORIZED "
+            + "AND p.createdAt < :cutoff AND p.pendingOperation IS NULL "
+            + "AND (p.createdAt > :afterCreatedAt OR (p.createdAt = :afterCreatedAt AND p.id > :afterId)) "
+            + "AND MOD(p.id, :shardCount) IN :shards "
+            + "ORDER BY p.createdAt ASC, p.id ASC")
+    List<StaleAuthorization> findStaleAuthorizations(@Param("cutoff") LocalDateTime cutoff,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt, @Param("afterId") Long afterId,
+            @Param("shardCount") int shardCount, @Param("shards") Collection<Integer> shards,
+            Pageable pageable);
+
+    /**
+     * Stream export rows created in [from, to), oldest first.
+     * Rows are read through a server-side cursor in chunks of the fetch
+     * size; the caller must consume the stream inside a transaction and
+     * close it.
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.shivamsrivastav.payment.dto.response.PaymentExportRow("
+            + "p.id, o.id, p.paypalPaymentId, p.paypalAuthorizationId, p.paypalCaptureId, "
+            + "p.amount.amount, p.amount.currency, p.paymentIntent, p.status, p.capturedAmount.amount, "
+            + "p.refundedAmount.amount, "
+            + "p.payerEmail, p.createdAt, p.completedAt) "
+            + "FROM Payment p LEFT JOIN p.order o WHERE p.createdAt >= :from AND p.createdAt < :to "
+            + "ORDER BY p.createdAt ASC, p.id ASC")
+    Stream<PaymentExportRow> streamExportRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Stream captured payments created in [from, to), ordered by capture ID
+     * in byte order (COLLATE "C") so the order matches Java's String
+     * ordering for the reconciliation merge.
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT id, paypal_payment_id AS paypalPaymentId, paypal_capture_id AS paypalCaptureId, "
+            + "amount, captured_amount AS capturedAmount, refunded_amount AS refundedAmount, currency, status "
+            + "FROM payments WHERE paypal_capture_id IS NOT NULL AND created_at >= :from AND created_at < :to "
+            + "ORDER BY paypal_capture_id COLLATE \"C\"", nativeQuery = true)
+    Stream<PaymentSettlementView> streamSettlementViews(@Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query(value = "SELECT id, paypal_payment_id AS paypalPaymentId, paypal_capture_id AS paypalCaptureId, "
+            + "amount, captured_amount AS capturedAmount, refunded_amount AS refundedAmount, currency, status "
+            + "FROM payments WHERE paypal_payment_id = :paypalPaymentId", nativeQuery = true)
+    Optional<PaymentSettlementView> findSettlementViewByPaypalPaymentId(
+            @Param("paypalPaymentId") String paypalPaymentId);
 }
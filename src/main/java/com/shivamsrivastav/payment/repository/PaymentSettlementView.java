@@ -0,0 +1,31 @@
+package com.shivamsrivastav.payment.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Payment Settlement View
+ *
+ * The columns of a payment that reconciliation compares against PayPal's
+ * settlement data. Used as a native-query projection so no entities are
+ * built while streaming.
+ *
+ * @author Shivam Srivastav
+ */
+public interface PaymentSettlementView {
+
+    Long getId();
+
+    String getPaypalPaymentId();
+
+    String getPaypalCaptureId();
+
+    BigDecimal getAmount();
+
+    BigDecimal getCapturedAmount();
+
+    BigDecimal getRefundedAmount();
+
+    String getCurrency();
+
+    String getStatus();
+}
@@ -0,0 +1,59 @@
+package com.shivamsrivastav.payment.repository;
+
+import com.shivamsrivastav.payment.entity.ShardLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Shard Lease Repository
+ * 
+ * A node owns shard s when s % nodeCount == nodeIndex. Leases are only
+ * taken when free, expired or already held by the same node, so a shard
+ * moves between live nodes only after its previous owner released it.
+ * 
+ * @author Shivam Srivastav
+ */
+@Repository
+public interface ShardLeaseRepository extends JpaRepository<ShardLease, Integer> {
+
+    @Modifying
+    @Query(value = "INSERT INTO shard_leases (shard) SELECT generate_series(0, :shardCount - 1) "
+            + "ON CONFLICT (shard) DO NOTHING", nativeQuery = true)
+    int createShards(@Param("shardCount") int shardCount);
+
+    /**
+     * Give up shards that are no longer assigned to this node.
+     */
+    @Modifying
+    @Query(value = "UPDATE shard_leases SET owner_node = NULL, lease_until = NULL "
+            + "WHERE owner_node = :nodeId AND (shard >= :shardCount OR MOD(shard, :nodeCount) <> :nodeIndex)",
+            nativeQuery = true)
+    int releaseUnassigned(@Param("nodeId") String nodeId, @Param("shardCount") int shardCount,
+            @Param("nodeCount") int nodeCount, @Param("nodeIndex") int nodeIndex);
+
+    /**
+     * Take or renew the shards assigned to this node.
+     */
+    @Modifying
+    @Query(value = "UPDATE shard_leases SET owner_node = :nodeId, "
+            + "lease_until = now() + make_interval(secs => :leaseSeconds) "
+            + "WHERE shard < :shardCount AND MOD(shard, :nodeCount) = :nodeIndex "
+            + "AND (owner_node IS NULL OR owner_node = :nodeId OR lease_until < now())", nativeQuery = true)
+    int acquireAssigned(@Param("nodeId") String nodeId, @Param("shardCount") int shardCount,
+            @Param("nodeCount") int nodeCount, @Param("nodeIndex") int nodeIndex,
+            @Param("leaseSeconds") long leaseSeconds);
+
+    @Modifying
+    @Query(value = "UPDATE shard_leases SET owner_node = NULL, lease_until = NULL WHERE owner_node = :nodeId",
+            nativeQuery = true)
+    int releaseAll(@Param("nodeId") String nodeId);
+
+    @Query(value = "SELECT shard FROM shard_leases WHERE owner_node = :nodeId AND lease_until > now() "
+            + "ORDER BY shard", nativeQuery = true)
+    List<Integer> findOwnedShards(@Param("nodeId") String nodeId);
+}
@@ -0,0 +1,11 @@
+package com.shivamsrivastav.payment.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset position of a payment in the authorization expiry sweep.
+ * 
+ * @author Shivam Srivastav
+ */
+public record StaleAuthorization(Long id, LocalDateTime createdAt) {
+}
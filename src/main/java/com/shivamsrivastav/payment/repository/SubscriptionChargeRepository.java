@@ -0,0 +1,22 @@
+package com.shivamsrivastav.payment.repository;
+
+import com.shivamsrivastav.payment.entity.SubscriptionCharge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Subscription Charge Repository
+ * 
+ * @author Shivam Srivastav
+ */
+@Repository
+public interface SubscriptionChargeRepository extends JpaRepository<SubscriptionCharge, Long> {
+
+    Optional<SubscriptionCharge> findBySubscriptionIdAndBillingDate(Long subscriptionId, LocalDate billingDate);
+
+    List<SubscriptionCharge> findBySubscriptionIdOrderByBillingDateDesc(Long subscriptionId);
+}
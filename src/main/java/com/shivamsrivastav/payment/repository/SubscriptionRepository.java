@@ -2,9 +2,18 @@ package com.shivamsrivastav.payment.repository;
 
 import com.shivamsrivastav.payment.entity.Subscription;
 import com.shivamsrivastav.payment.entity.enums.SubscriptionStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +30,56 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
     List<Subscription> findByStatus(SubscriptionStatus status);
 
     List<Subscription> findBySubscriberEmail(String subscriberEmail);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Subscription> findForUpdateById(Long id);
+
+    /**
+     * Next batch of active subscriptions due on or before the given date,
+     * strictly after the (nextBillingDate, id) keyset position, limited to
+     * the given shards (id % shardCount). Served by the partial index
+     * idx_subscriptions_due.
+     */
+    @Query("SELECT new com.shivamsrivastav.payment.repository.DueSubscription(s.id, s.nextBillingDate) "
+            + "FROM Subscription s WHERE s.status = com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.ACTIVE "
+            + "AND s.nextBillingDate <= :dueDate "
+            + "AND (s.nextBillingDate > :afterDate OR (s.nextBillingDate = :afterDate AND s.id > :afterId)) "
+            + "AND MOD(s.id, :shardCount) IN :shards "
+            + "ORDER BY s.nextBillingDate ASC, s.id ASC")
+    List<DueSubscription> findDue(@Param("dueDate") LocalDate dueDate, @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") Long afterId, @Param("shardCount") int shardCount,
+            @Param("shards") Collection<Integer> shards, Pageable pageable);
+
+    // ==================== Webhook state updates ====================
+    // Single UPDATE statements keyed on the unique PayPal subscription ID.
+    // Status only moves PENDING -> ACTIVE -> CANCELLED, so a late or
+    // repeated event matches no row.
+
+    /**
+     * BILLING.SUBSCRIPTION.ACTIVATED: activate a pending subscription and
+     * fill in its billing dates if they are not known yet.
+     */
+    @Modifying
+    @Query("UPDATE Subscription s SET s.status = com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.ACTIVE, "
+            + "s.startDate = COALESCE(s.startDate, :startDate), "
+            + "s.nextBillingDate = COALESCE(s.nextBillingDate, :nextBillingDate), "
+            + "s.updatedAt = :now "
+            + "WHERE s.paypalSubscriptionId = :paypalSubscriptionId "
+            + "AND s.status = com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.PENDING")
+    int applyActivated(@Param("paypalSubscriptionId") String paypalSubscriptionId,
+            @Param("startDate") LocalDate startDate, @Param("nextBillingDate") LocalDate nextBillingDate,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * BILLING.SUBSCRIPTION.CANCELLED: cancel a subscription that has not
+     * already ended.
+     */
+    @Modifying
+    @Query("UPDATE Subscription s SET s.status = com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.CANCELLED, "
+            + "s.cancelledAt = COALESCE(s.cancelledAt, :now), s.updatedAt = :now "
+            + "WHERE s.paypalSubscriptionId = :paypalSubscriptionId "
+            + "AND s.status IN (com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.PENDING, "
+            + "com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.ACTIVE, "
+            + "com.shivamsrivastav.payment.entity.enums.SubscriptionStatus.SUSPENDED)")
+    int applyCancelled(@Param("paypalSubscriptionId") String paypalSubscriptionId, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,14 @@
+package com.shivamsrivastav.payment.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A webhook event that has not been processed yet (pending, waiting for
+ * a retry, or dead-lettered), without its payload.
+ * 
+ * @author Shivam Srivastav
+ */
+public record UnprocessedWebhookEvent(Long id, String eventId, String eventType, String resourceId,
+        LocalDateTime receivedAt, int retryCount, LocalDateTime nextAttemptAt, boolean deadLetter,
+        String errorMessage) {
+}
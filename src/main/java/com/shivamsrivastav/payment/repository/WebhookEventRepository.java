@@ -1,9 +1,15 @@
 package com.shivamsrivastav.payment.repository;
 
 import com.shivamsrivastav.payment.entity.WebhookEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,7 +25,98 @@ public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long
 
     List<WebhookEvent> findByEventType(String eventType);
 
-    List<WebhookEvent> findByProcessedFalse();
+    /**
+     * Unprocessed events after the (receivedAt, id) keyset position, oldest
+     * first, one bounded batch at a time. Served by the partial index
+     * idx_webhook_events_unprocessed, so the cost follows the size of the
+     * backlog, not of the table.
+     */
+    @Query("SELECT new com.shivamsrivastav.payment.repository.UnprocessedWebhookEvent(e.id, e.eventId, "
+            + "e.eventType, e.resourceId, e.receivedAt, e.retryCount, e.nextAttemptAt, e.deadLetter, e.errorMessage) "
+            + "FROM WebhookEvent e WHERE e.processed = false "
+            + "AND (e.receivedAt > :afterReceivedAt OR (e.receivedAt = :afterReceivedAt AND e.id > :afterId)) "
+            + "ORDER BY e.receivedAt ASC, e.id ASC")
+    List<UnprocessedWebhookEvent> findUnprocessed(@Param("afterReceivedAt") LocalDateTime afterReceivedAt,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Claim the next due events for processing: lock them, skipping rows
+     * another worker has locked, and push next_attempt_at to claimedUntil
+     * so they stay hidden after the locks are released. Any number of
+     * workers and nodes can drain the queue without waiting on each other.
+     * Limited to the given shards (hash of the ordering key: resource ID,
+     * else event ID), so one resource's events are handled by one node, in
+     * order. One statement; payloads are not read.
+     *
+     * An event is only due once every older event of its resource has been
+     * processed or dead-lettered, so a failed event waiting for its retry
+     * holds back the later events of that resource instead of being
+     * overtaken by them (idx_webhook_events_ordering serves the check).
+     *
+     * @return ids of the claimed events, oldest due first
+     */
+    @Query(value = "WITH due AS (SELECT w.id, w.next_attempt_at FROM webhook_events w "
+            + "WHERE w.processed = false AND w.dead_letter = false AND w.next_attempt_at <= :now "
+            + "AND MOD(hashtext(COALESCE(NULLIF(w.resource_id, ''), w.event_id)) & 2147483647, :shardCount) "
+            + "IN (:shards) "
+            + "AND NOT EXISTS (SELECT 1 FROM webhook_events o "
+            + "WHERE o.processed = false AND o.dead_letter = false "
+            + "AND COALESCE(NULLIF(o.resource_id, ''), o.event_id) = COALESCE(NULLIF(w.resource_id, ''), w.event_id) "
+            + "AND (o.received_at < w.received_at OR (o.received_at = w.received_at AND o.id < w.id))) "
+            + "ORDER BY w.next_attempt_at ASC, w.id ASC LIMIT :limit FOR UPDATE OF w SKIP LOCKED), "
+            + "claimed AS (UPDATE webhook_events e SET next_attempt_at = :claimedUntil FROM due "
+            + "WHERE e.id = due.id RETURNING e.id, due.next_attempt_at AS due_at) "
+            + "SELECT id FROM claimed ORDER BY due_at ASC, id ASC", nativeQuery = true)
+    List<Long> claimDue(@Param("now") LocalDateTime now, @Param("claimedUntil") LocalDateTime claimedUntil,
+            @Param("shardCount") int shardCount, @Param("shards") Collection<Integer> shards,
+            @Param("limit") int limit);
+
+    /**
+     * Make claimed events due again immediately (e.g. when their lane was full).
+     */
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.nextAttemptAt = :now WHERE e.id IN :ids AND e.processed = false")
+    int releaseClaims(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
 
     boolean existsByEventId(String eventId);
+
+    /**
+     * Insert a newly received event unless its event_id is already stored.
+     * The primary key of webhook_event_keys does the duplicate check (event_id
+     * cannot be unique on the partitioned table), so a new webhook costs one
+     * statement instead of a lookup plus an insert, and two concurrent
+     * deliveries of the same event cannot both get in.
+     * Of payload, payloadGzip and payloadJsonb, pass "" / an empty array for
+     * the forms not used; they are stored as NULL.
+     *
+     * @return the new row's id, or empty if the event was already received
+     */
+    @Query(value = "WITH new_key AS ("
+            + "INSERT INTO webhook_event_keys (event_id, received_at) VALUES (:eventId, :receivedAt) "
+            + "ON CONFLICT (event_id) DO NOTHING RETURNING event_id), "
+            + "inserted AS (INSERT INTO webhook_events (event_id, event_type, resource_type, resource_id, payload, "
+            + "payload_gzip, payload_jsonb, processed, received_at, retry_count, next_attempt_at, dead_letter) "
+            + "SELECT event_id, :eventType, :resourceType, :resourceId, NULLIF(:payload, ''), "
+            + "NULLIF(:payloadGzip, CAST('' AS BYTEA)), CAST(NULLIF(:payloadJsonb, '') AS JSONB), "
+            + "false, :receivedAt, 0, :nextAttemptAt, false FROM new_key "
+            + "RETURNING id) "
+            + "SELECT id FROM inserted", nativeQuery = true)
+    List<Long> insertIfAbsent(@Param("eventId") String eventId, @Param("eventType") String eventType,
+            @Param("resourceType") String resourceType, @Param("resourceId") String resourceId,
+            @Param("payload") String payload, @Param("payloadGzip") byte[] payloadGzip,
+            @Param("payloadJsonb") String payloadJsonb, @Param("receivedAt") LocalDateTime receivedAt,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Register event IDs in webhook_event_keys, skipping those already
+     * there, e.g. before a batch of events is saved.
+     *
+     * @return the event IDs that were new
+     */
+    @Query(value = "WITH new_keys AS (INSERT INTO webhook_event_keys (event_id, received_at) "
+            + "SELECT event_id, :receivedAt FROM unnest(ARRAY[:eventIds]) AS event_id "
+            + "ON CONFLICT (event_id) DO NOTHING RETURNING event_id) "
+            + "SELECT event_id FROM new_keys", nativeQuery = true)
+    List<String> insertNewKeys(@Param("eventIds") Collection<String> eventIds,
+            @Param("receivedAt") LocalDateTime receivedAt);
 }
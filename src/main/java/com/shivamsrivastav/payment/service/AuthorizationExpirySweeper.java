@@ -0,0 +1,146 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import com.shivamsrivastav.payment.repository.StaleAuthorization;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Authorization Expiry Sweeper
+ *
+ * PayPal authorizations are only valid for a limited time, but an
+ * AUTHORIZED payment that is never captured stays AUTHORIZED locally and
+ * keeps the customer's funds on hold until PayPal gives up. This job voids
+ * authorizations older than payments.authorization-sweep.max-age-hours
+ * via {@link PaymentService#voidStaleAuthorization(Long, LocalDateTime)}
+ * and moves the payments to VOIDED.
+ *
+ * Candidates are read oldest first in keyset batches from
+ * idx_payments_status_created, limited to this node's shards; each batch
+ * is voided by a pool of payments.authorization-sweep.parallelism workers.
+ * Payments that fail to void stay AUTHORIZED and are retried next sweep.
+ *
+ * @author Shivam Srivastav
+ */
+@Component
+@ConditionalOnProperty(name = "payments.authorization-sweep.enabled", havingValue = "true", matchIfMissing = true)
+public class AuthorizationExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationExpirySweeper.class);
+
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final ShardCoordinator shardCoordinator;
+    private final Counter voided;
+    private final Counter failed;
+
+    @Value("${payments.authorization-sweep.max-age-hours:672}")
+    private long maxAgeHours;
+
+    @Value("${payments.authorization-sweep.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payments.authorization-sweep.parallelism:4}")
+    private int parallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    public AuthorizationExpirySweeper(PaymentService paymentService, PaymentRepository paymentRepository,
+            ShardCoordinator shardCoordinator, MeterRegistry meterRegistry) {
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.shardCoordinator = shardCoordinator;
+        this.voided = Counter.builder("payments.authorizations.swept")
+                .tag("outcome", "voided")
+                .register(meterRegistry);
+        this.failed = Counter.builder("payments.authorizations.swept")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${payments.authorization-sweep.interval-ms:600000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(maxAgeHours);
+        LocalDateTime afterCreatedAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+        Long afterId = 0L;
+        int total = 0;
+
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("auth-sweep-", 0).factory()
+                : Thread.ofPlatform().name("auth-sweep-", 0).factory();
+
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism, threads)) {
+            while (true) {
+                List<Integer> shards = shardCoordinator.ownedShards();
+                if (shards.isEmpty()) {
+                    break;
+                }
+                List<StaleAuthorization> batch = paymentRepository.findStaleAuthorizations(cutoff, afterCreatedAt,
+                        afterId, shardCoordinator.shardCount(), shards, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                List<Future<Boolean>> results = new ArrayList<>(batch.size());
+                for (StaleAuthorization stale : batch) {
+                    results.add(workers.submit(() -> voidOne(stale.id(), cutoff)));
+                }
+                for (Future<Boolean> result : results) {
+                    if (await(result)) {
+                        total++;
+                    }
+                }
+
+                StaleAuthorization last = batch.get(batch.size() - 1);
+                afterCreatedAt = last.createdAt();
+                afterId = last.id();
+            }
+        }
+
+        if (total > 0) {
+            log.info("Voided {} authorizations older than {}", total, cutoff);
+        }
+    }
+
+    private boolean voidOne(Long paymentId, LocalDateTime cutoff) {
+        try {
+            boolean done = paymentService.voidStaleAuthorization(paymentId, cutoff);
+            if (done) {
+                voided.increment();
+            }
+            return done;
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Could not void authorization for payment id={}: {}", paymentId, e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean await(Future<Boolean> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.shivamsrivastav.payment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shivamsrivastav.payment.dto.response.PaymentResponse;
+import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Idempotency Response Cache
+ *
+ * Keeps recent idempotency keys mapped to the serialized PaymentResponse a
+ * retry should receive, so client retries of /api/payments/create are
+ * answered without a database round-trip.
+ *
+ * - Entries expire after a TTL and are evicted by total size in bytes.
+ * - Responses are stored as JSON bytes, so the cache weight is close to
+ *   its real memory footprint and cached objects cannot be mutated.
+ * - PaymentService evicts a key whenever that payment changes state.
+ * - FAILED responses are never cached: a failed create releases its key,
+ *   and the retry must be able to create the payment again.
+ *
+ * Metrics: cache.gets{cache=idempotency.responses,result=hit|miss},
+ * cache.evictions, cache.size and idempotency.responses.cache.bytes.
+ *
+ * @author Shivam Srivastav
+ */
+@Component
+public class IdempotencyResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyResponseCache.class);
+
+    private static final String CACHE_NAME = "idempotency.responses";
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, byte[]> cache;
+
+    public IdempotencyResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${payments.idempotency.cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${payments.idempotency.cache.max-bytes:16777216}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumWeight(maxBytes)
+                .weigher((String key, byte[] value) -> key.length() + value.length)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".cache.bytes", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Approximate bytes held by the idempotency response cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public Optional<PaymentResponse> get(String idempotencyKey) {
+        byte[] bytes = cache.getIfPresent(idempotencyKey);
+        if (bytes == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(bytes, PaymentResponse.class));
+        } catch (IOException e) {
+            log.warn("Dropping unreadable cached response for idempotency key {}", idempotencyKey);
+            cache.invalidate(idempotencyKey);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String idempotencyKey, PaymentResponse response) {
+        if (idempotencyKey == null || response.getStatus() == PaymentStatus.FAILED) {
+            return;
+        }
+        try {
+            cache.put(idempotencyKey, objectMapper.writeValueAsBytes(response));
+        } catch (IOException e) {
+            log.warn("Could not cache response for idempotency key {}: {}", idempotencyKey, e.getMessage());
+        }
+    }
+
+    public void evict(String idempotencyKey) {
+        if (idempotencyKey != null) {
+            cache.invalidate(idempotencyKey);
+        }
+    }
+}
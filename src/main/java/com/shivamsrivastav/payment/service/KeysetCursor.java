@@ -0,0 +1,42 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.exception.PaymentException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset Cursor
+ *
+ * Position of the last row of a page in a (timestamp, id) keyset listing
+ * (orders by createdAt, the webhook backlog by receivedAt). The next page
+ * continues strictly after it.
+ *
+ * Cursors are opaque to clients: base64url("timestamp,id").
+ *
+ * @author Shivam Srivastav
+ */
+record KeysetCursor(LocalDateTime timestamp, Long id) {
+
+    static String encode(LocalDateTime timestamp, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + "," + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws PaymentException if the cursor was not produced by {@link #encode}
+     */
+    static KeysetCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected two parts");
+            }
+            return new KeysetCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new PaymentException("Invalid cursor: " + cursor);
+        }
+    }
+}
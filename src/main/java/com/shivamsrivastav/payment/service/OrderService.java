@@ -1,16 +1,25 @@
 package com.shivamsrivastav.payment.service;
 
+import com.shivamsrivastav.payment.dto.response.OrderPageResponse;
+import com.shivamsrivastav.payment.dto.response.OrderSummaryResponse;
+import com.shivamsrivastav.payment.dto.response.PaymentResponse;
 import com.shivamsrivastav.payment.entity.Order;
 import com.shivamsrivastav.payment.entity.enums.OrderStatus;
 import com.shivamsrivastav.payment.exception.PaymentException;
 import com.shivamsrivastav.payment.repository.OrderRepository;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -26,9 +35,14 @@ public class OrderService {
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
 
     private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final int maxPageSize;
 
-    public OrderService(OrderRepository orderRepository) {
+    public OrderService(OrderRepository orderRepository, PaymentRepository paymentRepository,
+            @Value("${orders.listing.max-page-size:100}") int maxPageSize) {
         this.orderRepository = orderRepository;
+        this.paymentRepository = paymentRepository;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
@@ -70,10 +84,43 @@ public class OrderService {
     }
 
     /**
-     * Get all orders.
+     * List orders newest first, one keyset page at a time.
+     * 
+     * @param status          optional status filter
+     * @param customerEmail   optional customer email filter
+     * @param cursor          nextCursor from the previous page, or null for the first page
+     * @param size            requested page size (capped at orders.listing.max-page-size)
+     * @param includePayments also load each order's payments (one extra query per page)
      */
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    @Transactional(readOnly = true)
+    public OrderPageResponse listOrders(OrderStatus status, String customerEmail, String cursor,
+            int size, boolean includePayments) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            afterCreatedAt = after.timestamp();
+            afterId = after.id();
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<OrderSummaryResponse> rows = orderRepository.findSummaries(status, customerEmail,
+                afterCreatedAt, afterId, pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            OrderSummaryResponse last = rows.get(pageSize - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+
+        if (includePayments && !rows.isEmpty()) {
+            attachPayments(rows);
+        }
+
+        return new OrderPageResponse(rows, nextCursor);
     }
 
     /**
@@ -86,6 +133,19 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
+    private void attachPayments(List<OrderSummaryResponse> orders) {
+        Map<Long, OrderSummaryResponse> byId = new HashMap<>();
+        for (OrderSummaryResponse order : orders) {
+            order.setPayments(new ArrayList<>());
+            byId.put(order.getId(), order);
+        }
+
+        for (var payment : paymentRepository.findByOrderIds(byId.keySet())) {
+            PaymentResponse response = PaymentService.toResponse(payment, null);
+            byId.get(payment.getOrder().getId()).getPayments().add(response);
+        }
+    }
+
     private String generateOrderNumber() {
         return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
@@ -0,0 +1,140 @@
+package com.shivamsrivastav.payment.service;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partitioned Executor
+ *
+ * Runs tasks on N single-threaded lanes. Tasks with the same key always
+ * land on the same lane, so they run strictly in submission order, while
+ * tasks for different keys run in parallel.
+ *
+ * Each lane has a bounded queue; submit() returns false instead of
+ * blocking when the target lane is full.
+ *
+ * @author Shivam Srivastav
+ */
+public class PartitionedExecutor {
+
+    private final Lane[] lanes;
+
+    public PartitionedExecutor(String name, int laneCount, int laneCapacity) {
+        this(name, laneCount, laneCapacity, false);
+    }
+
+    /**
+     * @param virtualThreads run each lane on a virtual thread instead of a
+     *                       platform thread (lanes block on JDBC and PayPal I/O)
+     */
+    public PartitionedExecutor(String name, int laneCount, int laneCapacity, boolean virtualThreads) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be at least 1");
+        }
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(name + "-" + i, laneCapacity, virtualThreads);
+        }
+    }
+
+    /**
+     * Submit a task for the given key.
+     *
+     * @param key         ordering key (tasks with equal keys run in order)
+     * @param sourceTime  epoch millis when the work originated, used for lag
+     * @param task        the work to run
+     * @return false if the lane is full or shut down
+     */
+    public boolean submit(String key, long sourceTime, Runnable task) {
+        try {
+            lanes[laneFor(key)].execute(new LaneTask(sourceTime, task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int laneFor(String key) {
+        return Math.floorMod(key == null ? 0 : key.hashCode(), lanes.length);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    public int queueDepth(int lane) {
+        return lanes[lane].getQueue().size();
+    }
+
+    public int remainingCapacity() {
+        int remaining = 0;
+        for (Lane lane : lanes) {
+            remaining += lane.getQueue().remainingCapacity();
+        }
+        return remaining;
+    }
+
+    /**
+     * Age in millis of the oldest task that is running or queued on a lane.
+     * Zero when the lane is idle.
+     */
+    public long lagMillis(int lane) {
+        Lane l = lanes[lane];
+        LaneTask oldest = l.running;
+        if (oldest == null) {
+            oldest = (LaneTask) l.getQueue().peek();
+        }
+        return oldest == null ? 0 : Math.max(0, System.currentTimeMillis() - oldest.sourceTime);
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (Lane lane : lanes) {
+            lane.shutdown();
+        }
+        for (Lane lane : lanes) {
+            if (!lane.awaitTermination(timeout, unit)) {
+                lane.shutdownNow();
+            }
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private static final class LaneTask implements Runnable {
+        private final long sourceTime;
+        private final Runnable delegate;
+
+        LaneTask(long sourceTime, Runnable delegate) {
+            this.sourceTime = sourceTime;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+
+    private static final class Lane extends ThreadPoolExecutor {
+        private volatile LaneTask running;
+
+        Lane(String threadName, int capacity, boolean virtualThreads) {
+            super(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(capacity),
+                    virtualThreads
+                            ? Thread.ofVirtual().name(threadName).factory()
+                            : Thread.ofPlatform().name(threadName).daemon(true).factory());
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            running = (LaneTask) task;
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable error) {
+            running = null;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.shivamsrivastav.payment.service;
+
+import com.paypal.base.rest.PayPalRESTException;
+import com.shivamsrivastav.payment.entity.enums.PaymentOperation;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.functions.CheckedSupplier;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * PayPal Resilience
+ *
+ * Guards calls to PayPal so a degraded PayPal cannot brown out the service.
+ *
+ * - Circuit breaker per operation (create, execute, capture, refund, void,
+ *   charge, lookup):
+ *   once too many calls fail or are slow, further calls fail fast with a
+ *   PaymentException instead of waiting for the HTTP timeout.
+ * - Bulkheads cap concurrent calls: "checkout" (create, execute, capture)
+ *   and "refunds" (refund, void, and lookups by the background jobs) have
+ *   separate limits, so a burst of refunds or recovery reads cannot take
+ *   all the capacity checkout needs. Subscription
+ *   charges ("billing") get their own limit for the same reason.
+ *
+ * Only server-side failures count against a breaker (I/O errors, 5xx and
+ * 429). A 4xx answer means PayPal is up and rejected the request.
+ *
+ * Metrics: resilience4j.circuitbreaker.* and resilience4j.bulkhead.*
+ * (tagged by name), plus paypal.circuit.transitions{operation,from,to}.
+ *
+ * @author Shivam Srivastav
+ */
+@Component
+public class PayPalResilience {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPalResilience.class);
+
+    private final Map<PaymentOperation, CircuitBreaker> breakers = new EnumMap<>(PaymentOperation.class);
+    private final Map<PaymentOperation, Bulkhead> bulkheads = new EnumMap<>(PaymentOperation.class);
+
+    public PayPalResilience(MeterRegistry meterRegistry,
+            @Value("${paypal.resilience.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${paypal.resilience.slow-call-duration-ms:10000}") long slowCallDurationMs,
+            @Value("${paypal.resilience.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${paypal.resilience.minimum-calls:10}") int minimumCalls,
+            @Value("${paypal.resilience.open-duration-seconds:30}") long openDurationSeconds,
+            @Value("${paypal.resilience.half-open-calls:3}") int halfOpenCalls,
+            @Value("${paypal.resilience.checkout-max-concurrent:80}") int checkoutMaxConcurrent,
+            @Value("${paypal.resilience.refunds-max-concurrent:20}") int refundsMaxConcurrent,
+            @Value("${paypal.resilience.billing-max-concurrent:20}") int billingMaxConcurrent,
+            @Value("${paypal.resilience.bulkhead-max-wait-ms:0}") long bulkheadMaxWaitMs) {
+
+        CircuitBreakerRegistry breakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slowCallRateThreshold(failureRateThreshold)
+                .waitDurationInOpenState(Duration.ofSeconds(openDurationSeconds))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(PayPalResilience::isPayPalFailure)
+                .build());
+
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+        Bulkhead checkout = bulkheadRegistry.bulkhead("paypal-checkout", bulkheadConfig(checkoutMaxConcurrent,
+                bulkheadMaxWaitMs));
+        Bulkhead refunds = bulkheadRegistry.bulkhead("paypal-refunds", bulkheadConfig(refundsMaxConcurrent,
+                bulkheadMaxWaitMs));
+        Bulkhead billing = bulkheadRegistry.bulkhead("paypal-billing", bulkheadConfig(billingMaxConcurrent,
+                bulkheadMaxWaitMs));
+
+        for (PaymentOperation operation : PaymentOperation.values()) {
+            String name = operation.name().toLowerCase();
+            CircuitBreaker breaker = breakerRegistry.circuitBreaker("paypal-" + name);
+            breaker.getEventPublisher().onStateTransition(event -> {
+                CircuitBreaker.StateTransition transition = event.getStateTransition();
+                log.warn("PayPal {} circuit {} -> {}", name, transition.getFromState(), transition.getToState());
+                Counter.builder("paypal.circuit.transitions")
+                        .tag("operation", name)
+                        .tag("from", transition.getFromState().name())
+                        .tag("to", transition.getToState().name())
+                        .register(meterRegistry)
+                        .increment();
+            });
+            breakers.put(operation, breaker);
+            bulkheads.put(operation, switch (operation) {
+                case REFUND, VOID, LOOKUP -> refunds;
+                case CHARGE -> billing;
+                default -> checkout;
+            });
+        }
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * Run a PayPal call through the operation's bulkhead and circuit breaker.
+     *
+     * @throws PaymentException    if the circuit is open or the bulkhead is full
+     * @throws PayPalRESTException if PayPal itself failed
+     */
+    public <T> T execute(PaymentOperation operation, CheckedSupplier<T> call) throws PayPalRESTException {
+        CircuitBreaker breaker = breakers.get(operation);
+        Bulkhead bulkhead = bulkheads.get(operation);
+        try {
+            return Bulkhead.decorateCheckedSupplier(bulkhead,
+                    CircuitBreaker.decorateCheckedSupplier(breaker, call)).get();
+        } catch (CallNotPermittedException e) {
+            throw new PaymentException("PayPal " + operation.name().toLowerCase()
+                    + " is temporarily unavailable (circuit open), please retry later", e);
+        } catch (BulkheadFullException e) {
+            throw new PaymentException("Too many concurrent PayPal " + operation.name().toLowerCase()
+                    + " calls, please retry later", e);
+        } catch (PayPalRESTException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new PaymentException("PayPal " + operation.name().toLowerCase() + " failed", e);
+        }
+    }
+
+    public CircuitBreaker.State state(PaymentOperation operation) {
+        return breakers.get(operation).getState();
+    }
+
+    private static BulkheadConfig bulkheadConfig(int maxConcurrent, long maxWaitMs) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrent)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMs))
+                .build();
+    }
+
+    private static boolean isPayPalFailure(Throwable error) {
+        if (error instanceof PayPalRESTException e) {
+            int status = e.getResponsecode();
+            return status == 0 || status == 429 || status >= 500;
+        }
+        return false;
+    }
+}
@@ -4,13 +4,14 @@ import com.paypal.api.payments.*;
 import com.paypal.base.rest.APIContext;
 import com.paypal.base.rest.PayPalRESTException;
 import com.shivamsrivastav.payment.dto.request.CreatePaymentRequest;
+import com.shivamsrivastav.payment.entity.enums.PaymentOperation;
 import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.money.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,6 +21,9 @@ import java.util.List;
  * Core service for interacting with PayPal REST API.
  * Handles all direct communication with PayPal.
  * 
+ * Calls for each payment operation run behind a circuit breaker and a
+ * bulkhead (see {@link PayPalResilience}).
+ * 
  * @author Shivam Srivastav
  */
 @Service
@@ -30,7 +34,9 @@ public class PayPalService {
     @org.springframework.beans.factory.annotation.Value("${paypal.client.id}")
     private String clientId;
 
-    private final APIContext apiContext;
+    private final PayPalTokenService tokenService;
+    private final PayPalTransport transport;
+    private final PayPalResilience resilience;
 
     private boolean isMockMode() {
         return clientId == null || clientId.startsWith("YOUR_") || clientId.isEmpty();
@@ -46,7 +52,7 @@ public class PayPalService {
         // Mock Transactions
         Amount amount = new Amount();
         amount.setCurrency(request.getCurrency());
-        amount.setTotal(request.getAmount().setScale(2, RoundingMode.HALF_UP).toString());
+        amount.setTotal(Money.of(request.getAmount(), request.getCurrency()).toPlainString());
 
         Transaction transaction = new Transaction();
         transaction.setAmount(amount);
@@ -99,8 +105,11 @@ public class PayPalService {
         return payment;
     }
 
-    public PayPalService(APIContext apiContext) {
-        this.apiContext = apiContext;
+    public PayPalService(PayPalTokenService tokenService, PayPalTransport transport,
+            PayPalResilience resilience) {
+        this.tokenService = tokenService;
+        this.transport = transport;
+        this.resilience = resilience;
     }
 
     /**
@@ -113,7 +122,7 @@ public class PayPalService {
         // 1. Set Amount
         Amount amount = new Amount();
         amount.setCurrency(request.getCurrency());
-        amount.setTotal(request.getAmount().setScale(2, RoundingMode.HALF_UP).toString());
+        amount.setTotal(Money.of(request.getAmount(), request.getCurrency()).toPlainString());
 
         // 2. Set Transaction
         Transaction transaction = new Transaction();
@@ -145,7 +154,9 @@ public class PayPalService {
         }
 
         try {
-            return payment.create(apiContext);
+            APIContext context = tokenService.apiContext();
+            return resilience.execute(PaymentOperation.CREATE,
+                    () -> transport.createPayment(context, payment));
         } catch (PayPalRESTException e) {
             log.error("Error creating payment: {}", e.getMessage(), e);
             throw new PaymentException("Failed to create payment", e);
@@ -160,9 +171,6 @@ public class PayPalService {
      * @return Executed Payment
      */
     public Payment executePayment(String paymentId, String payerId) {
-        Payment payment = new Payment();
-        payment.setId(paymentId);
-
         PaymentExecution paymentExecution = new PaymentExecution();
         paymentExecution.setPayerId(payerId);
 
@@ -171,37 +179,57 @@ public class PayPalService {
         }
 
         try {
-            return payment.execute(apiContext, paymentExecution);
+            APIContext context = tokenService.apiContext();
+            return resilience.execute(PaymentOperation.EXECUTE,
+                    () -> transport.executePayment(context, paymentId, paymentExecution));
         } catch (PayPalRESTException e) {
             log.error("Error executing payment: {}", e.getMessage(), e);
             throw new PaymentException("Failed to execute payment", e);
         }
     }
 
+    /**
+     * Look up a payment at PayPal, including its related sales,
+     * authorizations, captures and refunds.
+     * 
+     * @param paymentId PayPal Payment ID
+     * @return Current Payment state at PayPal
+     */
+    public Payment getPayment(String paymentId) {
+        if (isMockMode()) {
+            return mockExecutePayment(paymentId, null);
+        }
+
+        try {
+            APIContext context = tokenService.apiContext();
+            return resilience.execute(PaymentOperation.LOOKUP, () -> transport.getPayment(context, paymentId));
+        } catch (PayPalRESTException e) {
+            log.error("Error fetching payment: {}", e.getMessage(), e);
+            throw new PaymentException("Failed to fetch payment", e);
+        }
+    }
+
     /**
      * Capture an authorized payment.
      * 
      * @param authorizationId PayPal Authorization ID
      * @param amount          Amount to capture
-     * @param currency        Currency code
      * @param isFinalCapture  Whether this is the final capture
      * @return Capture details
      */
-    public Capture captureAuthorization(String authorizationId, BigDecimal amount, String currency,
-            boolean isFinalCapture) {
-        Authorization authorization = new Authorization();
-        authorization.setId(authorizationId);
-
+    public Capture captureAuthorization(String authorizationId, Money amount, boolean isFinalCapture) {
         Capture capture = new Capture();
         Amount captureAmount = new Amount();
-        captureAmount.setCurrency(currency);
-        captureAmount.setTotal(amount.setScale(2, RoundingMode.HALF_UP).toString());
+        captureAmount.setCurrency(amount.currency());
+        captureAmount.setTotal(amount.toPlainString());
 
         capture.setAmount(captureAmount);
         capture.setIsFinalCapture(isFinalCapture);
 
         try {
-            return authorization.capture(apiContext, capture);
+            APIContext context = tokenService.apiContext();
+            return resilience.execute(PaymentOperation.CAPTURE,
+                    () -> transport.captureAuthorization(context, authorizationId, capture));
         } catch (PayPalRESTException e) {
             log.error("Error capturing authorization: {}", e.getMessage(), e);
             throw new PaymentException("Failed to capture authorization", e);
@@ -213,11 +241,10 @@ public class PayPalService {
      * Releases held funds.
      */
     public void voidAuthorization(String authorizationId) {
-        Authorization authorization = new Authorization();
-        authorization.setId(authorizationId);
-
         try {
-            authorization.doVoid(apiContext);
+            APIContext context = tokenService.apiContext();
+            resilience.execute(PaymentOperation.VOID,
+                    () -> transport.voidAuthorization(context, authorizationId));
         } catch (PayPalRESTException e) {
             log.error("Error voiding authorization: {}", e.getMessage(), e);
             throw new PaymentException("Failed to void authorization", e);
@@ -227,25 +254,17 @@ public class PayPalService {
     /**
      * Refund a captured payment (Sale).
      * 
-     * @param saleId   PayPal Sale ID (Capture ID)
-     * @param amount   Amount to refund (null for full refund)
-     * @param currency Currency code
+     * @param saleId PayPal Sale ID (Capture ID)
+     * @param amount Amount to refund (null for full refund)
      * @return Refund details
      */
-    public Refund refundSale(String saleId, BigDecimal amount, String currency) {
-        Sale sale = new Sale();
-        sale.setId(saleId);
-
-        RefundRequest refundRequest = new RefundRequest();
-        if (amount != null) {
-            Amount refundAmount = new Amount();
-            refundAmount.setCurrency(currency);
-            refundAmount.setTotal(amount.setScale(2, RoundingMode.HALF_UP).toString());
-            refundRequest.setAmount(refundAmount);
-        }
+    public Refund refundSale(String saleId, Money amount) {
+        RefundRequest refundRequest = refundRequest(amount);
 
         try {
-            return sale.refund(apiContext, refundRequest);
+            APIContext context = tokenService.apiContext();
+            return resilience.execute(PaymentOperation.REFUND,
+                    () -> transport.refundSale(context, saleId, refundRequest));
         } catch (PayPalRESTException e) {
             log.error("Error refunding sale: {}", e.getMessage(), e);
             throw new PaymentException("Failed to refund sale", e);
@@ -256,23 +275,85 @@ public class PayPalService {
      * Refund a captured payment (Capture).
      * Used when payment was authorized then captured.
      */
-    public Refund refundCapture(String captureId, BigDecimal amount, String currency) {
-        Capture capture = new Capture();
-        capture.setId(captureId);
+    public Refund refundCapture(String captureId, Money amount) {
+        RefundRequest refundRequest = refundRequest(amount);
+
+        try {
+            APIContext context = tokenService.apiContext();
+            return resilience.execute(PaymentOperation.REFUND,
+                    () -> transport.refundCapture(context, captureId, refundRequest));
+        } catch (PayPalRESTException e) {
+            log.error("Error refunding capture: {}", e.getMessage(), e);
+            throw new PaymentException("Failed to refund capture", e);
+        }
+    }
 
+    /**
+     * Refund body; without an amount PayPal refunds whatever is left.
+     */
+    private static RefundRequest refundRequest(Money amount) {
         RefundRequest refundRequest = new RefundRequest();
         if (amount != null) {
             Amount refundAmount = new Amount();
-            refundAmount.setCurrency(currency);
-            refundAmount.setTotal(amount.setScale(2, RoundingMode.HALF_UP).toString());
+            refundAmount.setCurrency(amount.currency());
+            refundAmount.setTotal(amount.toPlainString());
             refundRequest.setAmount(refundAmount);
         }
+        return refundRequest;
+    }
+
+    /**
+     * Charge a billing agreement without the payer present (reference
+     * transaction): creates a "sale" payment funded by the agreement.
+     * 
+     * requestId is sent as PayPal-Request-Id. Repeating a call with the
+     * same requestId returns the original result instead of charging twice.
+     * 
+     * @param agreementId PayPal billing agreement ID
+     * @param amount      Amount to charge
+     * @param currency    Currency code
+     * @param description Description shown to the payer
+     * @param requestId   Idempotency key for this charge attempt
+     * @return Created (completed or failed) Payment
+     */
+    public Payment chargeBillingAgreement(String agreementId, BigDecimal amount, String currency,
+            String description, String requestId) {
+        Amount chargeAmount = new Amount();
+        chargeAmount.setCurrency(currency);
+        chargeAmount.setTotal(Money.rounded(amount, currency).toPlainString());
+
+        Transaction transaction = new Transaction();
+        transaction.setDescription(description);
+        transaction.setAmount(chargeAmount);
+
+        Billing billing = new Billing();
+        billing.setBillingAgreementId(agreementId);
+        FundingInstrument fundingInstrument = new FundingInstrument();
+        fundingInstrument.setBilling(billing);
+
+        Payer payer = new Payer();
+        payer.setPaymentMethod("paypal");
+        payer.setFundingInstruments(List.of(fundingInstrument));
+
+        Payment payment = new Payment();
+        payment.setIntent("sale");
+        payment.setPayer(payer);
+        payment.setTransactions(List.of(transaction));
+
+        if (isMockMode()) {
+            Payment mock = mockExecutePayment("PAYID-MOCK-" + requestId, null);
+            mock.getTransactions().get(0).getRelatedResources().get(0).setAuthorization(null);
+            return mock;
+        }
 
         try {
-            return capture.refund(apiContext, refundRequest);
+            APIContext context = tokenService.apiContext();
+            context.setRequestId(requestId);
+            return resilience.execute(PaymentOperation.CHARGE,
+                    () -> transport.createPayment(context, payment));
         } catch (PayPalRESTException e) {
-            log.error("Error refunding capture: {}", e.getMessage(), e);
-            throw new PaymentException("Failed to refund capture", e);
+            log.error("Error charging billing agreement {}: {}", agreementId, e.getMessage(), e);
+            throw new PaymentException("Failed to charge billing agreement", e);
         }
     }
 
@@ -0,0 +1,162 @@
+package com.shivamsrivastav.payment.service;
+
+import com.paypal.base.rest.APIContext;
+import com.paypal.base.rest.OAuthTokenCredential;
+import com.paypal.base.rest.PayPalRESTException;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PayPal Token Service
+ *
+ * Owns the OAuth access token used for PayPal REST calls.
+ *
+ * - The token is cached in memory until it expires.
+ * - A background check refreshes it shortly before expiry, so request
+ *   threads normally never wait on the OAuth endpoint.
+ * - Refreshes are serialized behind a lock with a re-check, so concurrent
+ *   callers that find the token missing trigger exactly one fetch.
+ *
+ * Metrics: paypal.oauth.token.fetch (timer) and
+ * paypal.oauth.token.requests{result=hit|miss} (counter).
+ *
+ * @author Shivam Srivastav
+ */
+public class PayPalTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPalTokenService.class);
+
+    private final String clientId;
+    private final String clientSecret;
+    private final Map<String, String> sdkConfig;
+    private final Duration refreshBeforeExpiry;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile CachedToken token;
+
+    private final Timer fetchTimer;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PayPalTokenService(String clientId, String clientSecret, Map<String, String> sdkConfig,
+            Duration refreshBeforeExpiry, MeterRegistry meterRegistry) {
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.sdkConfig = Map.copyOf(sdkConfig);
+        this.refreshBeforeExpiry = refreshBeforeExpiry;
+
+        this.fetchTimer = Timer.builder("paypal.oauth.token.fetch")
+                .description("Latency of PayPal OAuth token requests")
+                .register(meterRegistry);
+        this.hits = Counter.builder("paypal.oauth.token.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("paypal.oauth.token.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Build an API context for a single PayPal call using the cached token.
+     * A fresh context per call also gives each call its own request ID.
+     */
+    public APIContext apiContext() {
+        APIContext context = new APIContext(getAccessToken());
+        context.setConfigurationMap(sdkConfig);
+        return context;
+    }
+
+    /**
+     * Current access token ("Bearer ..."), fetched only if missing or expired.
+     */
+    public String getAccessToken() {
+        CachedToken current = token;
+        if (current != null && !current.isExpired(Instant.now())) {
+            hits.increment();
+            return current.value();
+        }
+
+        misses.increment();
+        return refresh(false).value();
+    }
+
+    /**
+     * Proactively refresh the token when it is close to expiry.
+     */
+    @Scheduled(fixedDelayString = "${paypal.oauth.refresh-check-interval-ms:30000}")
+    public void refreshIfNearExpiry() {
+        if (isMockMode()) {
+            return;
+        }
+
+        CachedToken current = token;
+        if (current == null || current.needsRefresh(Instant.now(), refreshBeforeExpiry)) {
+            try {
+                refresh(true);
+            } catch (PaymentException e) {
+                // The current token (if any) stays usable until it expires
+                log.warn("Background PayPal token refresh failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private CachedToken refresh(boolean proactive) {
+        refreshLock.lock();
+        try {
+            // Another thread may have refreshed while we waited for the lock
+            CachedToken current = token;
+            Instant now = Instant.now();
+            if (current != null && (proactive
+                    ? !current.needsRefresh(now, refreshBeforeExpiry)
+                    : !current.isExpired(now))) {
+                return current;
+            }
+
+            token = fetch();
+            return token;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private CachedToken fetch() {
+        Timer.Sample sample = Timer.start();
+        try {
+            OAuthTokenCredential credential = new OAuthTokenCredential(clientId, clientSecret, sdkConfig);
+            String accessToken = credential.getAccessToken();
+            Instant expiresAt = Instant.now().plusSeconds(credential.expiresIn());
+            log.debug("Fetched PayPal access token, expires at {}", expiresAt);
+            return new CachedToken(accessToken, expiresAt);
+        } catch (PayPalRESTException e) {
+            log.error("Error fetching PayPal access token: {}", e.getMessage(), e);
+            throw new PaymentException("Failed to obtain PayPal access token", e);
+        } finally {
+            sample.stop(fetchTimer);
+        }
+    }
+
+    private boolean isMockMode() {
+        return clientId == null || clientId.startsWith("YOUR_") || clientId.isEmpty();
+    }
+
+    private record CachedToken(String value, Instant expiresAt) {
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+
+        boolean needsRefresh(Instant now, Duration refreshBeforeExpiry) {
+            return !now.isBefore(expiresAt.minus(refreshBeforeExpiry));
+        }
+    }
+}
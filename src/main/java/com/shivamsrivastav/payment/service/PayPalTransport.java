@@ -0,0 +1,44 @@
+package com.shivamsrivastav.payment.service;
+
+import com.paypal.api.payments.Authorization;
+import com.paypal.api.payments.Capture;
+import com.paypal.api.payments.Payment;
+import com.paypal.api.payments.PaymentExecution;
+import com.paypal.api.payments.Refund;
+import com.paypal.api.payments.RefundRequest;
+import com.paypal.base.rest.APIContext;
+import com.paypal.base.rest.PayPalRESTException;
+
+/**
+ * PayPal Transport
+ * 
+ * The HTTP layer behind {@link PayPalService}. Each method maps to one
+ * PayPal REST (v1 payments) call and works with the SDK's model classes.
+ * 
+ * Implementations:
+ * - {@link SdkPayPalTransport}: the SDK's own HttpURLConnection path
+ * - {@link PooledPayPalTransport}: pooled keep-alive Apache HttpClient
+ * 
+ * Selected with paypal.http.transport (sdk | pooled).
+ * 
+ * @author Shivam Srivastav
+ */
+public interface PayPalTransport {
+
+    Payment createPayment(APIContext context, Payment payment) throws PayPalRESTException;
+
+    Payment executePayment(APIContext context, String paymentId, PaymentExecution execution)
+            throws PayPalRESTException;
+
+    Payment getPayment(APIContext context, String paymentId) throws PayPalRESTException;
+
+    Capture captureAuthorization(APIContext context, String authorizationId, Capture capture)
+            throws PayPalRESTException;
+
+    Authorization voidAuthorization(APIContext context, String authorizationId) throws PayPalRESTException;
+
+    Refund refundSale(APIContext context, String saleId, RefundRequest refundRequest) throws PayPalRESTException;
+
+    Refund refundCapture(APIContext context, String captureId, RefundRequest refundRequest)
+            throws PayPalRESTException;
+}
@@ -0,0 +1,152 @@
+package com.shivamsrivastav.payment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shivamsrivastav.payment.dto.response.PaymentExportRow;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Payment Export Service
+ *
+ * Bulk export of payments for finance reconciliation.
+ *
+ * Rows are streamed from a server-side JDBC cursor (read-only transaction
+ * plus fetch size, see PaymentRepository#streamExportRows) and written
+ * straight to the response output stream, so memory use is constant
+ * regardless of how many payments fall in the range.
+ *
+ * @author Shivam Srivastav
+ */
+@Service
+public class PaymentExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentExportService.class);
+
+    /**
+     * Rows written between explicit flushes to the client.
+     */
+    private static final int FLUSH_EVERY = 1000;
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final PaymentRepository paymentRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PaymentExportService(PaymentRepository paymentRepository, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.paymentRepository = paymentRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write all payments created in [from, to) to the output stream.
+     *
+     * @return number of rows written
+     */
+    public long export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) {
+        log.info("Exporting payments: from={}, to={}, format={}", from, to, format);
+        long started = System.currentTimeMillis();
+
+        Long rows = readOnlyTransaction.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            long count = 0;
+            try (Stream<PaymentExportRow> stream = paymentRepository.streamExportRows(from, to)) {
+                if (format == Format.CSV) {
+                    writer.write(PaymentExportRow.CSV_HEADER);
+                    writer.write('\n');
+                }
+
+                var iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    PaymentExportRow row = iterator.next();
+                    if (format == Format.CSV) {
+                        writeCsv(writer, row);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+
+                    if (++count % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+            } catch (IOException e) {
+                // Typically the client went away; abort the cursor
+                throw new UncheckedIOException("Payment export aborted after " + count + " rows", e);
+            }
+            return count;
+        });
+
+        log.info("Payment export finished: rows={}, tookMs={}", rows, System.currentTimeMillis() - started);
+        return rows == null ? 0 : rows;
+    }
+
+    private static void writeCsv(Writer writer, PaymentExportRow row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writeCsvValue(writer, row.orderId());
+        writer.write(',');
+        writeCsvValue(writer, row.paypalPaymentId());
+        writer.write(',');
+        writeCsvValue(writer, row.paypalAuthorizationId());
+        writer.write(',');
+        writeCsvValue(writer, row.paypalCaptureId());
+        writer.write(',');
+        writeCsvValue(writer, row.amount() == null ? null : row.amount().toPlainString());
+        writer.write(',');
+        writeCsvValue(writer, row.currency());
+        writer.write(',');
+        writeCsvValue(writer, row.paymentIntent());
+        writer.write(',');
+        writeCsvValue(writer, row.status());
+        writer.write(',');
+        writeCsvValue(writer, row.capturedAmount() == null ? null : row.capturedAmount().toPlainString());
+        writer.write(',');
+        writeCsvValue(writer, row.refundedAmount() == null ? null : row.refundedAmount().toPlainString());
+        writer.write(',');
+        writeCsvValue(writer, row.payerEmail());
+        writer.write(',');
+        writeCsvValue(writer, row.createdAt());
+        writer.write(',');
+        writeCsvValue(writer, row.completedAt());
+        writer.write('\n');
+    }
+
+    /**
+     * RFC 4180 quoting: values containing a comma, quote or line break are
+     * wrapped in quotes with embedded quotes doubled.
+     */
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,73 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Payment Recovery Job
+ * 
+ * Finds payments whose PayPal operation was started but never completed
+ * locally (pending_operation older than the configured threshold) and
+ * hands them to {@link PaymentService#recoverPendingOperation(Long)}.
+ * Each node only recovers payments in the shards it owns.
+ * 
+ * @author Shivam Srivastav
+ */
+@Component
+public class PaymentRecoveryJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentRecoveryJob.class);
+
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final ShardCoordinator shardCoordinator;
+
+    /**
+     * Must comfortably exceed the PayPal SDK timeout so that operations
+     * still in flight are never treated as abandoned.
+     */
+    @Value("${payments.recovery.stale-after-seconds:300}")
+    private long staleAfterSeconds;
+
+    @Value("${payments.recovery.batch-size:100}")
+    private int batchSize;
+
+    public PaymentRecoveryJob(PaymentService paymentService, PaymentRepository paymentRepository,
+            ShardCoordinator shardCoordinator) {
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.shardCoordinator = shardCoordinator;
+    }
+
+    @Scheduled(fixedDelayString = "${payments.recovery.interval-ms:60000}")
+    public void recoverStaleOperations() {
+        List<Integer> shards = shardCoordinator.ownedShards();
+        if (shards.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(staleAfterSeconds);
+        List<Long> stale = paymentRepository.findStalePendingIds(cutoff, shardCoordinator.shardCount(), shards,
+                PageRequest.of(0, batchSize));
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        log.warn("Found {} payments with interrupted PayPal operations", stale.size());
+        for (Long paymentId : stale) {
+            try {
+                paymentService.recoverPendingOperation(paymentId);
+            } catch (Exception e) {
+                log.error("Recovery failed for payment id={}: {}", paymentId, e.getMessage(), e);
+            }
+        }
+    }
+}
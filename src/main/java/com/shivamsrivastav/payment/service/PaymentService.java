@@ -1,23 +1,37 @@
 package com.shivamsrivastav.payment.service;
 
+import com.paypal.api.payments.Amount;
 import com.paypal.api.payments.Payment;
+import com.paypal.api.payments.RelatedResources;
+import com.paypal.api.payments.Transaction;
+import com.paypal.base.rest.PayPalRESTException;
 import com.shivamsrivastav.payment.dto.request.*;
 import com.shivamsrivastav.payment.dto.response.PaymentResponse;
 import com.shivamsrivastav.payment.entity.Order;
 import com.shivamsrivastav.payment.entity.enums.OrderStatus;
 import com.shivamsrivastav.payment.entity.enums.PaymentIntent;
+import com.shivamsrivastav.payment.entity.enums.PaymentOperation;
 import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
 import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.money.Money;
 import com.shivamsrivastav.payment.repository.OrderRepository;
 import com.shivamsrivastav.payment.repository.PaymentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * Payment Service
@@ -25,6 +39,22 @@ import java.util.UUID;
  * Business logic layer for payment operations.
  * Orchestrates between PayPal service and database.
  * 
+ * Every flow that calls PayPal is split into three steps so no database
+ * connection is held during the network round-trip:
+ * 1. A short transaction validates and records the intent
+ *    (pending_operation on the payment row).
+ * 2. The PayPal call runs outside any transaction.
+ * 3. A second short transaction applies the result and clears the marker.
+ * If the process dies between 2 and 3, PaymentRecoveryJob finds the stale
+ * marker and reconciles the row against PayPal.
+ * 
+ * Concurrent creates with the same idempotency key result in exactly one
+ * PayPal call:
+ * - In-process, the first request runs and the others wait for its result.
+ * - Across nodes, the PENDING row inserted in step 1 is the reservation;
+ *   the unique idempotency_key makes every other node's insert fail, and
+ *   those requests wait for the winner's row to leave CREATE.
+ * 
  * @author Shivam Srivastav
  */
 @Service
@@ -32,21 +62,77 @@ public class PaymentService {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
 
+    private static final String IDEMPOTENT_REPLAY_MESSAGE = "Payment already exists (idempotency)";
+
     private final PayPalService payPalService;
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyResponseCache responseCache;
+    private final long idempotencyWaitMs;
+
+    /**
+     * Creates currently running in this process, by idempotency key.
+     */
+    private final ConcurrentMap<String, CompletableFuture<PaymentResponse>> inFlightCreates =
+            new ConcurrentHashMap<>();
 
     public PaymentService(PayPalService payPalService, PaymentRepository paymentRepository,
-            OrderRepository orderRepository) {
+            OrderRepository orderRepository, PlatformTransactionManager transactionManager,
+            IdempotencyResponseCache responseCache,
+            @Value("${payments.idempotency.wait-ms:10000}") long idempotencyWaitMs) {
         this.payPalService = payPalService;
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.responseCache = responseCache;
+        this.idempotencyWaitMs = idempotencyWaitMs;
     }
 
     // ==================== CREATE PAYMENT ====================
 
-    @Transactional
     public PaymentResponse createPayment(CreatePaymentRequest request) {
+        // Reject amounts with more decimals than the currency allows; the
+        // stored amount must be exactly what PayPal is asked to charge
+        Money.of(request.getAmount(), request.getCurrency());
+
+        String idempotencyKey = request.getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return createPaymentOnce(request);
+        }
+
+        // Retries of a recent request are answered from memory
+        var cached = responseCache.get(idempotencyKey);
+        if (cached.isPresent()) {
+            log.info("Idempotency cache hit: returning payment id={}", cached.get().getId());
+            return cached.get();
+        }
+
+        // Single-flight: only one request per key runs, the rest share its result
+        CompletableFuture<PaymentResponse> flight = new CompletableFuture<>();
+        CompletableFuture<PaymentResponse> leader = inFlightCreates.putIfAbsent(idempotencyKey, flight);
+        if (leader != null) {
+            log.info("Idempotency key {} already in flight, waiting for its result", idempotencyKey);
+            try {
+                return leader.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            PaymentResponse response = createPaymentOnce(request);
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCreates.remove(idempotencyKey, flight);
+        }
+    }
+
+    private PaymentResponse createPaymentOnce(CreatePaymentRequest request) {
         log.info("Creating payment: amount={}, currency={}",
                 request.getAmount(), request.getCurrency());
 
@@ -56,62 +142,529 @@ public class PaymentService {
             if (existingPayment.isPresent()) {
                 log.info("Idempotency hit: returning existing payment id={}",
                         existingPayment.get().getId());
-                return toResponse(existingPayment.get(), "Payment already exists (idempotency)");
+                return toIdempotentResponse(existingPayment.get());
             }
         }
 
-        // 2. Create payment with PayPal
-        Payment paypalPayment = payPalService.createPayment(request);
-        String approvalUrl = payPalService.getApprovalUrl(paypalPayment);
-
-        // 3. Get order if specified
-        Order order = null;
-        if (request.getOrderId() != null) {
-            order = orderRepository.findById(request.getOrderId())
-                    .orElseThrow(() -> new PaymentException("Order not found: " + request.getOrderId()));
+        // 2. Record the payment before calling PayPal (this reserves the idempotency key)
+        Long paymentId;
+        try {
+            paymentId = reservePayment(request);
+        } catch (DataIntegrityViolationException e) {
+            if (request.getIdempotencyKey() == null) {
+                throw e;
+            }
+            log.info("Idempotency key {} reserved concurrently, waiting for the other request",
+                    request.getIdempotencyKey());
+            return toIdempotentResponse(paymentRepository.findByIdempotencyKey(request.getIdempotencyKey())
+                    .orElseThrow(() -> e));
         }
 
-        // 4. Save payment to database
-        com.shivamsrivastav.payment.entity.Payment payment = com.shivamsrivastav.payment.entity.Payment.builder()
-                .paypalPaymentId(paypalPayment.getId())
-                .order(order)
-                .amount(request.getAmount())
-                .currency(request.getCurrency())
-                .description(request.getDescription())
-                .paymentIntent(request.getPaymentIntent())
-                .status(PaymentStatus.CREATED)
-                .idempotencyKey(request.getIdempotencyKey() != null
-                        ? request.getIdempotencyKey()
-                        : UUID.randomUUID().toString())
-                .approvalUrl(approvalUrl)
-                .build();
+        // 3. Create payment with PayPal (no transaction held)
+        Payment paypalPayment;
+        String approvalUrl;
+        try {
+            paypalPayment = payPalService.createPayment(request);
+            approvalUrl = payPalService.getApprovalUrl(paypalPayment);
+        } catch (RuntimeException e) {
+            failCreate(paymentId);
+            throw e;
+        }
 
-        payment = paymentRepository.save(payment);
+        // 4. Save PayPal result
+        com.shivamsrivastav.payment.entity.Payment payment = inTransaction(() -> {
+            var created = loadPayment(paymentId);
+            created.setPaypalPaymentId(paypalPayment.getId());
+            created.setApprovalUrl(approvalUrl);
+            created.setStatus(PaymentStatus.CREATED);
+            created.completeOperation();
+            return paymentRepository.save(created);
+        });
 
         log.info("Payment created successfully: id={}, paypalId={}",
                 payment.getId(), payment.getPaypalPaymentId());
 
+        if (request.getIdempotencyKey() != null) {
+            responseCache.put(request.getIdempotencyKey(), toResponse(payment, IDEMPOTENT_REPLAY_MESSAGE));
+        }
+
         return toResponse(payment, "Payment created. Redirect user to approvalUrl to complete payment.");
     }
 
+    /**
+     * Insert the PENDING payment row. Fails with a constraint violation if
+     * another request already holds the idempotency key.
+     */
+    private Long reservePayment(CreatePaymentRequest request) {
+        return inTransaction(() -> {
+            Order order = null;
+            if (request.getOrderId() != null) {
+                order = orderRepository.findById(request.getOrderId())
+                        .orElseThrow(() -> new PaymentException("Order not found: " + request.getOrderId()));
+            }
+
+            com.shivamsrivastav.payment.entity.Payment payment = com.shivamsrivastav.payment.entity.Payment.builder()
+                    .order(order)
+                    .amount(Money.of(request.getAmount(), request.getCurrency()))
+                    .description(request.getDescription())
+                    .paymentIntent(request.getPaymentIntent())
+                    .status(PaymentStatus.PENDING)
+                    .idempotencyKey(request.getIdempotencyKey() != null
+                            ? request.getIdempotencyKey()
+                            : UUID.randomUUID().toString())
+                    .pendingOperation(PaymentOperation.CREATE)
+                    .pendingSince(LocalDateTime.now())
+                    .build();
+
+            return paymentRepository.saveAndFlush(payment).getId();
+        });
+    }
+
+    /**
+     * Response for a request whose idempotency key already has a payment.
+     * If that payment is still being created (by another request or node),
+     * wait for the outcome instead of reporting a half-created payment.
+     */
+    private PaymentResponse toIdempotentResponse(com.shivamsrivastav.payment.entity.Payment existing) {
+        var payment = existing;
+        long deadline = System.currentTimeMillis() + idempotencyWaitMs;
+        while (payment.getPendingOperation() == PaymentOperation.CREATE) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new PaymentException("Payment for idempotency key " + payment.getIdempotencyKey()
+                        + " is still being created, please retry");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentException("Interrupted while waiting for payment creation", e);
+            }
+            payment = loadPayment(payment.getId());
+        }
+        PaymentResponse response = toResponse(payment, IDEMPOTENT_REPLAY_MESSAGE);
+        responseCache.put(payment.getIdempotencyKey(), response);
+        return response;
+    }
+
     // ==================== EXECUTE PAYMENT ====================
 
-    @Transactional
     public PaymentResponse executePayment(ExecutePaymentRequest request) {
         log.info("Executing payment: paymentId={}, payerId={}",
                 request.getPaymentId(), request.getPayerId());
 
-        // 1. Find payment in our database
-        com.shivamsrivastav.payment.entity.Payment payment = paymentRepository
-                .findByPaypalPaymentId(request.getPaymentId())
-                .orElseThrow(() -> new PaymentException("Payment not found: " + request.getPaymentId()));
-
-        // 2. Execute with PayPal
-        Payment executedPayment = payPalService.executePayment(
-                request.getPaymentId(), request.getPayerId());
+        // 1. Find payment in our database and mark the execution as started
+        Long paymentId = inTransaction(() -> {
+            var payment = paymentRepository.findForUpdateByPaypalPaymentId(request.getPaymentId())
+                    .orElseThrow(() -> new PaymentException("Payment not found: " + request.getPaymentId()));
+            beginOperation(payment, PaymentOperation.EXECUTE);
+            return payment.getId();
+        });
+
+        // 2. Execute with PayPal (no transaction held)
+        Payment executedPayment;
+        try {
+            executedPayment = payPalService.executePayment(request.getPaymentId(), request.getPayerId());
+        } catch (RuntimeException e) {
+            abandonOperation(paymentId, null);
+            throw e;
+        }
 
         // 3. Update our database
-        payment.setPaypalPayerId(request.getPayerId());
+        com.shivamsrivastav.payment.entity.Payment payment = inTransaction(() ->
+                applyExecution(loadPayment(paymentId), request.getPayerId(), executedPayment));
+        responseCache.evict(payment.getIdempotencyKey());
+
+        log.info("Payment executed successfully: id={}, status={}",
+                payment.getId(), payment.getStatus());
+
+        String message = payment.getStatus() == PaymentStatus.CAPTURED
+                ? "Payment completed successfully!"
+                : "Payment authorized. Call capture to charge the customer.";
+
+        return toResponse(payment, message);
+    }
+
+    // ==================== CAPTURE AUTHORIZED PAYMENT ====================
+
+    public PaymentResponse capturePayment(CapturePaymentRequest request) {
+        log.info("Capturing payment: authorizationId={}, amount={}",
+                request.getAuthorizationId(), request.getAmount());
+
+        // 1. Find payment by authorization ID, validate and mark the capture as started
+        PendingCapture pending = inTransaction(() -> {
+            var payment = paymentRepository.findForUpdateByPaypalAuthorizationId(request.getAuthorizationId())
+                    .orElseThrow(() -> new PaymentException(
+                            "Payment not found for authorization: " + request.getAuthorizationId()));
+
+            if (!payment.isCaptureable()) {
+                throw new PaymentException("Payment cannot be captured. Status: " + payment.getStatus());
+            }
+            // Reject amounts with more decimals than the currency has
+            // before PayPal is called
+            Money amount = Money.of(request.getAmount(), payment.getCurrency());
+
+            beginOperation(payment, PaymentOperation.CAPTURE);
+            return new PendingCapture(payment.getId(), amount);
+        });
+        Long paymentId = pending.paymentId();
+
+        // 2. Capture with PayPal (no transaction held)
+        com.paypal.api.payments.Capture capture;
+        try {
+            capture = payPalService.captureAuthorization(
+                    request.getAuthorizationId(),
+                    pending.amount(),
+                    request.getIsFinalCapture());
+        } catch (RuntimeException e) {
+            abandonOperation(paymentId, null);
+            throw e;
+        }
+
+        // 3. Update database
+        com.shivamsrivastav.payment.entity.Payment payment = inTransaction(() -> {
+            var captured = loadPayment(paymentId);
+            captured.setPaypalCaptureId(capture.getId());
+            // Adds the amount only if this capture ID is not recorded yet
+            if (!paymentRepository.recordCapture(capture.getId(), paymentId, pending.amount().toBigDecimal())
+                    .isEmpty()) {
+                captured.setCapturedAmount(captured.getCapturedAmount().plus(pending.amount()));
+            }
+
+            if (request.getIsFinalCapture()) {
+                captured.setStatus(PaymentStatus.CAPTURED);
+                captured.setCompletedAt(LocalDateTime.now());
+            }
+
+            captured.completeOperation();
+            return paymentRepository.save(captured);
+        });
+        responseCache.evict(payment.getIdempotencyKey());
+
+        log.info("Payment captured successfully: id={}, capturedAmount={}",
+                payment.getId(), payment.getCapturedAmount());
+
+        return toResponse(payment, "Payment captured successfully!");
+    }
+
+    // ==================== REFUND PAYMENT ====================
+
+    public PaymentResponse refundPayment(RefundRequest request) {
+        log.info("Refunding payment: captureId={}, amount={}",
+                request.getCaptureId(), request.getAmount());
+
+        // 1. Find payment, validate and mark the refund as started
+        PendingRefund pending = inTransaction(() -> {
+            var payment = paymentRepository.findForUpdateByPaypalCaptureId(request.getCaptureId())
+                    .orElseThrow(() -> new PaymentException(
+                            "Payment not found for capture: " + request.getCaptureId()));
+
+            if (!payment.isRefundable()) {
+                throw new PaymentException("Payment cannot be refunded. Status: " + payment.getStatus());
+            }
+
+            Money refundable = payment.getRefundableAmount();
+            Money refundAmount = request.getAmount() == null
+                    ? refundable
+                    : Money.of(request.getAmount(), payment.getCurrency());
+
+            if (refundAmount.compareTo(refundable) > 0) {
+                throw new PaymentException("Refund amount exceeds refundable amount. Max: " +
+                        refundable.toPlainString());
+            }
+
+            beginOperation(payment, PaymentOperation.REFUND);
+            return new PendingRefund(payment.getId(), payment.getPaymentIntent(), refundAmount);
+        });
+
+        // 2. Refund with PayPal (no transaction held)
+        // Check if this was a sale or capture; no amount refunds the rest
+        Money refundAmount = request.getAmount() == null ? null : pending.amount();
+        try {
+            if (pending.intent() == PaymentIntent.CAPTURE) {
+                // Direct sale - use sale refund
+                payPalService.refundSale(request.getCaptureId(), refundAmount);
+            } else {
+                // Authorization then capture - use capture refund
+                payPalService.refundCapture(request.getCaptureId(), refundAmount);
+            }
+        } catch (RuntimeException e) {
+            abandonOperation(pending.paymentId(), null);
+            throw e;
+        }
+
+        // 3. Update database
+        com.shivamsrivastav.payment.entity.Payment payment = inTransaction(() -> {
+            var refunded = loadPayment(pending.paymentId());
+            refunded.setRefundedAmount(refunded.getRefundedAmount().plus(pending.amount()));
+            refunded.setRefundReason(request.getReason());
+            applyRefundStatus(refunded);
+            refunded.completeOperation();
+            return paymentRepository.save(refunded);
+        });
+        responseCache.evict(payment.getIdempotencyKey());
+
+        log.info("Payment refunded successfully: id={}, refundedAmount={}",
+                payment.getId(), payment.getRefundedAmount());
+
+        String message = payment.getStatus() == PaymentStatus.REFUNDED
+                ? "Full refund processed successfully!"
+                : "Partial refund processed. Remaining: " + payment.getRefundableAmount().toPlainString();
+
+        return toResponse(payment, message);
+    }
+
+    // ==================== VOID EXPIRED AUTHORIZATION ====================
+
+    /**
+     * Void a payment's authorization if it is still AUTHORIZED and was
+     * created before the cutoff, releasing the held funds.
+     * 
+     * An authorization PayPal already expired or voided cannot be voided
+     * again; the payment is marked VOIDED all the same. One PayPal reports
+     * as already completed has been captured: the payment is re-read from
+     * PayPal and the capture applied instead.
+     * 
+     * @return true if the payment is now VOIDED
+     */
+    public boolean voidStaleAuthorization(Long paymentId, LocalDateTime cutoff) {
+        // 1. Re-check under lock and mark the void as started
+        PendingVoid pending = inTransaction(() -> {
+            var payment = paymentRepository.findForUpdateById(paymentId).orElse(null);
+            if (payment == null || payment.getStatus() != PaymentStatus.AUTHORIZED
+                    || payment.getPendingOperation() != null
+                    || payment.getPaypalAuthorizationId() == null
+                    || !payment.getCreatedAt().isBefore(cutoff)) {
+                return null;
+            }
+            beginOperation(payment, PaymentOperation.VOID);
+            return new PendingVoid(payment.getPaypalAuthorizationId(), payment.getPaypalPaymentId());
+        });
+        if (pending == null) {
+            return false;
+        }
+        String authorizationId = pending.authorizationId();
+
+        // 2. Void with PayPal (no transaction held)
+        try {
+            payPalService.voidAuthorization(authorizationId);
+        } catch (RuntimeException e) {
+            if (isAuthorizationCaptured(e)) {
+                log.warn("Authorization {} was captured at PayPal, applying the capture instead of voiding",
+                        authorizationId);
+                applyRemoteCapture(paymentId, pending.paypalPaymentId());
+                return false;
+            }
+            if (!isAuthorizationClosed(e)) {
+                abandonOperation(paymentId, null);
+                throw e;
+            }
+            log.info("Authorization {} already closed at PayPal: {}", authorizationId, e.getMessage());
+        }
+
+        // 3. Update database
+        var payment = inTransaction(() -> {
+            var voided = loadPayment(paymentId);
+            voided.setStatus(PaymentStatus.VOIDED);
+            voided.completeOperation();
+            return paymentRepository.save(voided);
+        });
+        responseCache.evict(payment.getIdempotencyKey());
+
+        log.info("Stale authorization voided: id={}, authorizationId={}", paymentId, authorizationId);
+        return true;
+    }
+
+    /**
+     * Bring a payment whose authorization PayPal reports as captured in
+     * line with PayPal's captures, and end the VOID operation.
+     */
+    private void applyRemoteCapture(Long paymentId, String paypalPaymentId) {
+        // If this fails the VOID stays pending and recovery re-reads the payment
+        Payment remote = payPalService.getPayment(paypalPaymentId);
+
+        var payment = inTransaction(() -> {
+            var captured = loadPayment(paymentId);
+            syncSettlement(captured, remote);
+            captured.completeOperation();
+            return paymentRepository.save(captured);
+        });
+        responseCache.evict(payment.getIdempotencyKey());
+    }
+
+    /**
+     * Whether PayPal rejected a void because the authorization is already
+     * expired or voided.
+     */
+    private static boolean isAuthorizationClosed(RuntimeException e) {
+        String name = payPalErrorName(e);
+        return "AUTHORIZATION_EXPIRED".equals(name) || "AUTHORIZATION_VOIDED".equals(name);
+    }
+
+    /**
+     * Whether PayPal rejected a void because the authorization was captured.
+     */
+    private static boolean isAuthorizationCaptured(RuntimeException e) {
+        return "AUTHORIZATION_ALREADY_COMPLETED".equals(payPalErrorName(e));
+    }
+
+    private static String payPalErrorName(RuntimeException e) {
+        if (e.getCause() instanceof PayPalRESTException cause && cause.getDetails() != null) {
+            return cause.getDetails().getName();
+        }
+        return null;
+    }
+
+    // ==================== RECOVERY ====================
+
+    /**
+     * Reconcile a payment whose PayPal operation was started but whose
+     * result was never applied locally (e.g. the process crashed).
+     * 
+     * - CREATE: the approval URL never reached the client, so the payment
+     *   is marked FAILED and its idempotency key released; the unapproved
+     *   PayPal payment simply expires.
+     * - EXECUTE / CAPTURE / REFUND: the payment is re-read from PayPal and
+     *   the local row is brought in line with what PayPal recorded.
+     * - VOID: captures PayPal recorded are applied; otherwise the payment
+     *   is marked VOIDED if PayPal shows the authorization voided or
+     *   expired.
+     */
+    public void recoverPendingOperation(Long paymentId) {
+        var snapshot = paymentRepository.findById(paymentId).orElse(null);
+        if (snapshot == null || snapshot.getPendingOperation() == null) {
+            return;
+        }
+
+        PaymentOperation operation = snapshot.getPendingOperation();
+        log.warn("Recovering interrupted {} for payment id={}, pendingSince={}",
+                operation, paymentId, snapshot.getPendingSince());
+
+        if (operation == PaymentOperation.CREATE) {
+            failCreate(paymentId);
+            return;
+        }
+        if (snapshot.getPaypalPaymentId() == null) {
+            abandonOperation(paymentId, null);
+            return;
+        }
+
+        // Read PayPal's view without holding a transaction
+        Payment remote = payPalService.getPayment(snapshot.getPaypalPaymentId());
+
+        inTransaction(() -> {
+            var payment = paymentRepository.findForUpdateById(paymentId).orElse(null);
+            if (payment == null || payment.getPendingOperation() != operation) {
+                return null;
+            }
+
+            switch (operation) {
+                case EXECUTE -> {
+                    if ("approved".equals(remote.getState())) {
+                        String payerId = remote.getPayer() != null && remote.getPayer().getPayerInfo() != null
+                                ? remote.getPayer().getPayerInfo().getPayerId()
+                                : payment.getPaypalPayerId();
+                        return applyExecution(payment, payerId, remote);
+                    }
+                }
+                case CAPTURE, REFUND -> syncSettlement(payment, remote);
+                case VOID -> {
+                    // The authorization may have been captured instead
+                    syncSettlement(payment, remote);
+                    if (payment.getStatus() == PaymentStatus.AUTHORIZED) {
+                        syncVoid(payment, remote);
+                    }
+                }
+                default -> log.warn("No recovery action for {} on payment id={}", operation, paymentId);
+            }
+
+            payment.completeOperation();
+            return paymentRepository.save(payment);
+        });
+
+        responseCache.evict(snapshot.getIdempotencyKey());
+
+        log.info("Recovered {} for payment id={}", operation, paymentId);
+    }
+
+    // ==================== GET PAYMENT ====================
+
+    public PaymentResponse getPaymentById(Long id) {
+        var payment = paymentRepository.findById(id)
+                .orElseThrow(() -> new PaymentException("Payment not found: " + id));
+        return toResponse(payment, null);
+    }
+
+    public PaymentResponse getPaymentByPaypalId(String paypalPaymentId) {
+        var payment = paymentRepository.findByPaypalPaymentId(paypalPaymentId)
+                .orElseThrow(() -> new PaymentException("Payment not found: " + paypalPaymentId));
+        return toResponse(payment, null);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    private com.shivamsrivastav.payment.entity.Payment loadPayment(Long paymentId) {
+        return paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new PaymentException("Payment not found: " + paymentId));
+    }
+
+    /**
+     * Claim the payment for a PayPal operation. Must be called on a row
+     * locked for update.
+     */
+    private void beginOperation(com.shivamsrivastav.payment.entity.Payment payment, PaymentOperation operation) {
+        if (payment.getPendingOperation() != null) {
+            throw new PaymentException("Payment " + payment.getId() + " has a "
+                    + payment.getPendingOperation() + " operation in progress");
+        }
+        payment.startOperation(operation);
+        paymentRepository.save(payment);
+    }
+
+    /**
+     * Clear the in-flight marker after a PayPal call failed.
+     * 
+     * @param failedStatus status to record, or null to keep the current one
+     */
+    private void abandonOperation(Long paymentId, PaymentStatus failedStatus) {
+        transactionTemplate.executeWithoutResult(status ->
+                paymentRepository.findById(paymentId).ifPresent(payment -> {
+                    if (failedStatus != null) {
+                        payment.setStatus(failedStatus);
+                    }
+                    payment.completeOperation();
+                    paymentRepository.save(payment);
+                    responseCache.evict(payment.getIdempotencyKey());
+                }));
+    }
+
+    /**
+     * Mark a payment whose PayPal create failed as FAILED and release its
+     * idempotency key, so a retry with the same key creates the payment
+     * again instead of being answered with the failure. The FAILED row
+     * stays for auditing.
+     */
+    private void failCreate(Long paymentId) {
+        transactionTemplate.executeWithoutResult(status ->
+                paymentRepository.findById(paymentId).ifPresent(payment -> {
+                    String idempotencyKey = payment.getIdempotencyKey();
+                    payment.setStatus(PaymentStatus.FAILED);
+                    payment.setIdempotencyKey(null);
+                    payment.completeOperation();
+                    paymentRepository.save(payment);
+                    responseCache.evict(idempotencyKey);
+                }));
+    }
+
+    /**
+     * Apply an executed PayPal payment to the local row.
+     */
+    private com.shivamsrivastav.payment.entity.Payment applyExecution(
+            com.shivamsrivastav.payment.entity.Payment payment, String payerId, Payment executedPayment) {
+        payment.setPaypalPayerId(payerId);
         payment.setStatus(PaymentStatus.APPROVED);
 
         // Check if it's a sale (immediate capture) or authorization
@@ -124,6 +677,7 @@ public class PaymentService {
                     payment.setStatus(PaymentStatus.CAPTURED);
                     payment.setCapturedAmount(payment.getAmount());
                     payment.setCompletedAt(LocalDateTime.now());
+                    paymentRepository.recordCapture(saleId, payment.getId(), payment.getAmount().toBigDecimal());
                 } catch (Exception e) {
                     log.warn("Could not get sale ID, payment still approved");
                 }
@@ -157,104 +711,92 @@ public class PaymentService {
             orderRepository.save(payment.getOrder());
         }
 
-        payment = paymentRepository.save(payment);
-
-        log.info("Payment executed successfully: id={}, status={}",
-                payment.getId(), payment.getStatus());
-
-        String message = payment.getStatus() == PaymentStatus.CAPTURED
-                ? "Payment completed successfully!"
-                : "Payment authorized. Call capture to charge the customer.";
-
-        return toResponse(payment, message);
+        payment.completeOperation();
+        return paymentRepository.save(payment);
     }
 
-    // ==================== CAPTURE AUTHORIZED PAYMENT ====================
-
-    @Transactional
-    public PaymentResponse capturePayment(CapturePaymentRequest request) {
-        log.info("Capturing payment: authorizationId={}, amount={}",
-                request.getAuthorizationId(), request.getAmount());
-
-        // 1. Find payment by authorization ID
-        com.shivamsrivastav.payment.entity.Payment payment = paymentRepository.findAll().stream()
-                .filter(p -> request.getAuthorizationId().equals(p.getPaypalAuthorizationId()))
-                .findFirst()
-                .orElseThrow(() -> new PaymentException(
-                        "Payment not found for authorization: " + request.getAuthorizationId()));
-
-        // 2. Validate payment can be captured
-        if (!payment.isCaptureable()) {
-            throw new PaymentException("Payment cannot be captured. Status: " + payment.getStatus());
+    /**
+     * Bring captured/refunded totals in line with the captures and refunds
+     * PayPal has recorded for this payment. Totals only ever grow, so a
+     * partially applied local update is never rolled back.
+     */
+    private void syncSettlement(com.shivamsrivastav.payment.entity.Payment payment, Payment remote) {
+        Money captured = Money.zero(payment.getCurrency());
+        Money refunded = Money.zero(payment.getCurrency());
+        String captureId = null;
+        boolean authorizationClosed = false;
+
+        if (remote.getTransactions() != null) {
+            for (Transaction transaction : remote.getTransactions()) {
+                if (transaction.getRelatedResources() == null) {
+                    continue;
+                }
+                for (RelatedResources related : transaction.getRelatedResources()) {
+                    if (related.getCapture() != null && related.getCapture().getAmount() != null
+                            && !"pending".equals(related.getCapture().getState())) {
+                        Money amount = remoteAmount(related.getCapture().getAmount());
+                        captured = captured.plus(amount);
+                        captureId = related.getCapture().getId();
+                        paymentRepository.recordCapture(captureId, payment.getId(), amount.toBigDecimal());
+                    }
+                    if (related.getRefund() != null && related.getRefund().getAmount() != null
+                            && "completed".equals(related.getRefund().getState())) {
+                        refunded = refunded.plus(remoteAmount(related.getRefund().getAmount()));
+                    }
+                    if (related.getAuthorization() != null
+                            && "captured".equals(related.getAuthorization().getState())) {
+                        authorizationClosed = true;
+                    }
+                }
+            }
         }
 
-        // 3. Capture with PayPal
-        var capture = payPalService.captureAuthorization(
-                request.getAuthorizationId(),
-                request.getAmount(),
-                request.getCurrency(),
-                request.getIsFinalCapture());
-
-        // 4. Update database
-        payment.setPaypalCaptureId(capture.getId());
-        payment.setCapturedAmount(payment.getCapturedAmount().add(request.getAmount()));
-
-        if (request.getIsFinalCapture()) {
-            payment.setStatus(PaymentStatus.CAPTURED);
-            payment.setCompletedAt(LocalDateTime.now());
+        if (captured.compareTo(payment.getCapturedAmount()) > 0) {
+            payment.setCapturedAmount(captured);
+            payment.setPaypalCaptureId(captureId);
+            if (authorizationClosed) {
+                payment.setStatus(PaymentStatus.CAPTURED);
+                payment.setCompletedAt(LocalDateTime.now());
+            }
         }
 
-        payment = paymentRepository.save(payment);
-
-        log.info("Payment captured successfully: id={}, capturedAmount={}",
-                payment.getId(), payment.getCapturedAmount());
-
-        return toResponse(payment, "Payment captured successfully!");
-    }
-
-    // ==================== REFUND PAYMENT ====================
-
-    @Transactional
-    public PaymentResponse refundPayment(RefundRequest request) {
-        log.info("Refunding payment: captureId={}, amount={}",
-                request.getCaptureId(), request.getAmount());
-
-        // 1. Find payment
-        com.shivamsrivastav.payment.entity.Payment payment = paymentRepository.findAll().stream()
-                .filter(p -> request.getCaptureId().equals(p.getPaypalCaptureId()))
-                .findFirst()
-                .orElseThrow(() -> new PaymentException(
-                        "Payment not found for capture: " + request.getCaptureId()));
-
-        // 2. Validate payment can be refunded
-        if (!payment.isRefundable()) {
-            throw new PaymentException("Payment cannot be refunded. Status: " + payment.getStatus());
+        if (refunded.compareTo(payment.getRefundedAmount()) > 0) {
+            payment.setRefundedAmount(refunded);
+            applyRefundStatus(payment);
         }
+    }
 
-        BigDecimal refundAmount = request.getAmount();
-        if (refundAmount == null) {
-            refundAmount = payment.getRefundableAmount();
-        }
+    /**
+     * An amount as PayPal reports it ("10.50", "USD").
+     */
+    private static Money remoteAmount(Amount amount) {
+        return Money.of(new BigDecimal(amount.getTotal()), amount.getCurrency());
+    }
 
-        if (refundAmount.compareTo(payment.getRefundableAmount()) > 0) {
-            throw new PaymentException("Refund amount exceeds refundable amount. Max: " +
-                    payment.getRefundableAmount());
+    /**
+     * Mark the payment VOIDED if PayPal shows its authorization as voided
+     * or expired.
+     */
+    private void syncVoid(com.shivamsrivastav.payment.entity.Payment payment, Payment remote) {
+        if (remote.getTransactions() == null) {
+            return;
         }
-
-        // 3. Refund with PayPal
-        // Check if this was a sale or capture
-        if (payment.getPaymentIntent() == PaymentIntent.CAPTURE) {
-            // Direct sale - use sale refund
-            payPalService.refundSale(request.getCaptureId(), request.getAmount(), request.getCurrency());
-        } else {
-            // Authorization then capture - use capture refund
-            payPalService.refundCapture(request.getCaptureId(), request.getAmount(), request.getCurrency());
+        for (Transaction transaction : remote.getTransactions()) {
+            if (transaction.getRelatedResources() == null) {
+                continue;
+            }
+            for (RelatedResources related : transaction.getRelatedResources()) {
+                if (related.getAuthorization() != null
+                        && ("voided".equals(related.getAuthorization().getState())
+                        || "expired".equals(related.getAuthorization().getState()))) {
+                    payment.setStatus(PaymentStatus.VOIDED);
+                    return;
+                }
+            }
         }
+    }
 
-        // 4. Update database
-        payment.setRefundedAmount(payment.getRefundedAmount().add(refundAmount));
-        payment.setRefundReason(request.getReason());
-
+    private void applyRefundStatus(com.shivamsrivastav.payment.entity.Payment payment) {
         if (payment.getRefundedAmount().compareTo(payment.getCapturedAmount()) >= 0) {
             payment.setStatus(PaymentStatus.REFUNDED);
         } else {
@@ -266,36 +808,27 @@ public class PaymentService {
             payment.getOrder().setStatus(OrderStatus.REFUNDED);
             orderRepository.save(payment.getOrder());
         }
-
-        payment = paymentRepository.save(payment);
-
-        log.info("Payment refunded successfully: id={}, refundedAmount={}",
-                payment.getId(), payment.getRefundedAmount());
-
-        String message = payment.getStatus() == PaymentStatus.REFUNDED
-                ? "Full refund processed successfully!"
-                : "Partial refund processed. Remaining: " + payment.getRefundableAmount();
-
-        return toResponse(payment, message);
     }
 
-    // ==================== GET PAYMENT ====================
-
-    public PaymentResponse getPaymentById(Long id) {
-        var payment = paymentRepository.findById(id)
-                .orElseThrow(() -> new PaymentException("Payment not found: " + id));
-        return toResponse(payment, null);
+    /**
+     * Values carried from the capture's first transaction to its second.
+     */
+    private record PendingCapture(Long paymentId, Money amount) {
     }
 
-    public PaymentResponse getPaymentByPaypalId(String paypalPaymentId) {
-        var payment = paymentRepository.findByPaypalPaymentId(paypalPaymentId)
-                .orElseThrow(() -> new PaymentException("Payment not found: " + paypalPaymentId));
-        return toResponse(payment, null);
+    /**
+     * Values carried from the refund's first transaction to its second.
+     */
+    private record PendingRefund(Long paymentId, PaymentIntent intent, Money amount) {
     }
 
-    // ==================== HELPER METHODS ====================
+    /**
+     * PayPal IDs carried from the void's first transaction to its second.
+     */
+    private record PendingVoid(String authorizationId, String paypalPaymentId) {
+    }
 
-    private PaymentResponse toResponse(com.shivamsrivastav.payment.entity.Payment payment, String message) {
+    static PaymentResponse toResponse(com.shivamsrivastav.payment.entity.Payment payment, String message) {
         return PaymentResponse.builder()
                 .id(payment.getId())
                 .paypalPaymentId(payment.getPaypalPaymentId())
@@ -0,0 +1,208 @@
+package com.shivamsrivastav.payment.service;
+
+import com.paypal.api.payments.Authorization;
+import com.paypal.api.payments.Capture;
+import com.paypal.api.payments.Error;
+import com.paypal.api.payments.Payment;
+import com.paypal.api.payments.PaymentExecution;
+import com.paypal.api.payments.Refund;
+import com.paypal.api.payments.RefundRequest;
+import com.paypal.base.rest.APIContext;
+import com.paypal.base.rest.JSONFormatter;
+import com.paypal.base.rest.PayPalModel;
+import com.paypal.base.rest.PayPalRESTException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pooled PayPal Transport
+ *
+ * Sends PayPal REST calls through a pooled Apache HttpClient. Connections
+ * (and their TLS sessions) are kept alive and reused across payments
+ * instead of paying a TCP + TLS handshake per call.
+ *
+ * Request and response bodies are the SDK's own model classes, serialized
+ * with the SDK's JSON formatter, so PayPalService is unaffected.
+ *
+ * Metrics:
+ * - paypal.http.requests / paypal.http.connections.opened: the gap
+ *   between the two counters is the number of reused connections
+ * - paypal.http.pool.leased / available / pending: pool state
+ *
+ * @author Shivam Srivastav
+ */
+public class PooledPayPalTransport implements PayPalTransport, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledPayPalTransport.class);
+
+    private final String baseUrl;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    private final Counter requests;
+    private final Counter connectionsOpened;
+
+    public PooledPayPalTransport(String baseUrl, PayPalHttpSettings settings, MeterRegistry meterRegistry) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+
+        this.requests = Counter.builder("paypal.http.requests")
+                .description("PayPal REST requests sent")
+                .register(meterRegistry);
+        this.connectionsOpened = Counter.builder("paypal.http.connections.opened")
+                .description("New connections opened to PayPal (requests minus this = reused)")
+                .register(meterRegistry);
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(settings.maxConnectionsPerRoute())
+                .setMaxConnTotal(settings.maxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                        .setTimeToLive(TimeValue.ofSeconds(settings.connectionTtlSeconds()))
+                        .build())
+                .setConnectionFactory(socket -> {
+                    connectionsOpened.increment();
+                    return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+                })
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(settings.idleEvictionSeconds()))
+                .disableAutomaticRetries()
+                .build();
+
+        Gauge.builder("paypal.http.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .description("Connections currently in use")
+                .register(meterRegistry);
+        Gauge.builder("paypal.http.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable())
+                .description("Idle keep-alive connections ready for reuse")
+                .register(meterRegistry);
+        Gauge.builder("paypal.http.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .description("Requests waiting for a pooled connection")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Payment createPayment(APIContext context, Payment payment) throws PayPalRESTException {
+        return send(context, "POST", "v1/payments/payment", payment, Payment.class);
+    }
+
+    @Override
+    public Payment executePayment(APIContext context, String paymentId, PaymentExecution execution)
+            throws PayPalRESTException {
+        return send(context, "POST", "v1/payments/payment/" + paymentId + "/execute", execution, Payment.class);
+    }
+
+    @Override
+    public Payment getPayment(APIContext context, String paymentId) throws PayPalRESTException {
+        return send(context, "GET", "v1/payments/payment/" + paymentId, null, Payment.class);
+    }
+
+    @Override
+    public Capture captureAuthorization(APIContext context, String authorizationId, Capture capture)
+            throws PayPalRESTException {
+        return send(context, "POST", "v1/payments/authorization/" + authorizationId + "/capture",
+                capture, Capture.class);
+    }
+
+    @Override
+    public Authorization voidAuthorization(APIContext context, String authorizationId) throws PayPalRESTException {
+        return send(context, "POST", "v1/payments/authorization/" + authorizationId + "/void",
+                null, Authorization.class);
+    }
+
+    @Override
+    public Refund refundSale(APIContext context, String saleId, RefundRequest refundRequest)
+            throws PayPalRESTException {
+        return send(context, "POST", "v1/payments/sale/" + saleId + "/refund", refundRequest, Refund.class);
+    }
+
+    @Override
+    public Refund refundCapture(APIContext context, String captureId, RefundRequest refundRequest)
+            throws PayPalRESTException {
+        return send(context, "POST", "v1/payments/capture/" + captureId + "/refund", refundRequest, Refund.class);
+    }
+
+    private <T> T send(APIContext context, String method, String path, PayPalModel body, Class<T> responseType)
+            throws PayPalRESTException {
+        ClassicRequestBuilder builder = ClassicRequestBuilder.create(method)
+                .setUri(baseUrl + path)
+                .setHeader("Authorization", context.fetchAccessToken())
+                .setHeader("Accept", "application/json");
+
+        String requestId = context.getRequestId();
+        if (requestId != null) {
+            builder.setHeader("PayPal-Request-Id", requestId);
+        }
+        if (!"GET".equals(method)) {
+            builder.setEntity(body != null ? body.toJSON() : "", ContentType.APPLICATION_JSON);
+        }
+        ClassicHttpRequest request = builder.build();
+
+        requests.increment();
+        HttpResult result;
+        try {
+            result = httpClient.execute(request, response -> new HttpResult(response.getCode(),
+                    response.getEntity() != null
+                            ? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8)
+                            : ""));
+        } catch (IOException e) {
+            throw new PayPalRESTException("I/O error calling PayPal " + method + " " + path + ": "
+                    + e.getMessage(), e);
+        }
+
+        if (result.status() >= 200 && result.status() < 300) {
+            return result.body().isEmpty() ? null : JSONFormatter.fromJSON(result.body(), responseType);
+        }
+
+        PayPalRESTException error = new PayPalRESTException(
+                "PayPal " + method + " " + path + " failed with status " + result.status() + ": " + result.body());
+        error.setResponsecode(result.status());
+        try {
+            error.setDetails(JSONFormatter.fromJSON(result.body(), Error.class));
+        } catch (Exception e) {
+            log.debug("PayPal error body is not a standard error object");
+        }
+        throw error;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private record HttpResult(int status, String body) {
+    }
+
+    /**
+     * Connection pool and timeout settings (paypal.http.*).
+     */
+    public record PayPalHttpSettings(int maxConnectionsPerRoute, int maxConnectionsTotal,
+            long connectTimeoutMs, long readTimeoutMs, long connectionTtlSeconds, long idleEvictionSeconds) {
+    }
+}
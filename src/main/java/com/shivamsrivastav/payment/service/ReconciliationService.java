@@ -0,0 +1,309 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult;
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult.Mismatch;
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult.MismatchType;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import com.shivamsrivastav.payment.repository.PaymentSettlementView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Reconciliation Service
+ *
+ * Matches a PayPal settlement report against the payments table and
+ * reports amount, status and missing-record mismatches.
+ *
+ * Both sides are streamed in transaction/capture ID order and joined with
+ * a sorted merge, so memory stays flat for multi-million-line reports:
+ * - the report is external-sorted on disk ({@link SettlementReportSorter});
+ * - captured payments created in the report period are streamed from a
+ *   database cursor ordered by paypal_capture_id.
+ *
+ * Report rows whose transaction ID has no local capture are looked up by
+ * PayPal payment ID (an indexed point query; such rows should be rare)
+ * to tell a wrong capture ID apart from a payment we never recorded.
+ * Because that payment may sort before or after the row, local payments
+ * absent from the report are held until the merge ends and only then
+ * reported as MISSING_IN_REPORT.
+ *
+ * @author Shivam Srivastav
+ */
+@Service
+public class ReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+
+    private static final int SAMPLE_LIMIT = 100;
+
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int sortChunkLines;
+    private final Path outputDir;
+
+    public ReconciliationService(PaymentRepository paymentRepository, PlatformTransactionManager transactionManager,
+            @Value("${reconciliation.sort-chunk-lines:200000}") int sortChunkLines,
+            @Value("${reconciliation.output-dir:${java.io.tmpdir}/reconciliation}") String outputDir) {
+        this.paymentRepository = paymentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.sortChunkLines = sortChunkLines;
+        this.outputDir = Path.of(outputDir);
+    }
+
+    /**
+     * Reconcile a settlement report covering [from, to] (inclusive dates).
+     */
+    public ReconciliationResult reconcile(Path report, LocalDate from, LocalDate to) {
+        log.info("Reconciling settlement report {} for {}..{}", report, from, to);
+        long started = System.currentTimeMillis();
+
+        Path workDir = null;
+        try {
+            workDir = Files.createTempDirectory("reconciliation-");
+            Path sorted = SettlementReportSorter.sort(report, workDir, sortChunkLines);
+
+            Files.createDirectories(outputDir);
+            Path mismatchFile = outputDir.resolve("mismatches-" + from + "-" + to + "-"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv");
+
+            ReconciliationResult result = new ReconciliationResult();
+            result.setMismatchFile(mismatchFile.toString());
+
+            try (BufferedWriter out = Files.newBufferedWriter(mismatchFile, StandardCharsets.UTF_8);
+                    SettlementReportSorter.SortedEntries entries = SettlementReportSorter.open(sorted)) {
+                out.write("type,transaction_id,paypal_payment_id,local_payment_id,detail");
+                out.newLine();
+
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<PaymentSettlementView> local = paymentRepository.streamSettlementViews(
+                            from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+                        merge(entries, local.iterator(), new MismatchSink(result, out));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            log.info("Reconciliation finished: reportRows={}, localRows={}, matched={}, mismatches={}, tookMs={}",
+                    result.getReportRows(), result.getLocalRows(), result.getMatched(),
+                    result.getTotalMismatches(), System.currentTimeMillis() - started);
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Reconciliation failed: {}", e.getMessage(), e);
+            throw new PaymentException("Reconciliation failed: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(workDir);
+        }
+    }
+
+    // ==================== Merge ====================
+
+    private void merge(SettlementReportSorter.SortedEntries entries, Iterator<PaymentSettlementView> local,
+            MismatchSink sink) throws IOException {
+        // Local payments already reported as CAPTURE_ID_MISMATCH; skipped when
+        // the merge reaches them so they are not also reported missing
+        Set<Long> matchedByPaymentId = new HashSet<>();
+        // Local payments the merge passed without a report row; a later row
+        // may still match them by PayPal payment ID
+        Map<Long, PaymentSettlementView> missingInReport = new LinkedHashMap<>();
+
+        SettlementReportSorter.Entry entry = entries.next();
+        PaymentSettlementView payment = next(local, sink);
+        String previousId = null;
+
+        while (entry != null || payment != null) {
+            if (entry != null && !entry.transactionId().isEmpty()) {
+                if (entry.transactionId().equals(previousId)) {
+                    sink.record(MismatchType.DUPLICATE_IN_REPORT, entry, null, "Transaction ID repeated in report");
+                    sink.result.countReportRow();
+                    entry = entries.next();
+                    continue;
+                }
+            }
+
+            int cmp = entry == null ? 1
+                    : payment == null ? -1
+                    : entry.transactionId().compareTo(payment.getPaypalCaptureId());
+
+            if (cmp < 0) {
+                sink.result.countReportRow();
+                unmatchedReportRow(entry, sink, matchedByPaymentId, missingInReport);
+                previousId = entry.transactionId();
+                entry = entries.next();
+            } else if (cmp > 0) {
+                if (!matchedByPaymentId.remove(payment.getId())) {
+                    missingInReport.put(payment.getId(), payment);
+                }
+                payment = next(local, sink);
+            } else {
+                sink.result.countReportRow();
+                compare(entry, payment, sink);
+                previousId = entry.transactionId();
+                entry = entries.next();
+                payment = next(local, sink);
+            }
+        }
+
+        for (PaymentSettlementView missing : missingInReport.values()) {
+            sink.record(MismatchType.MISSING_IN_REPORT, null, missing,
+                    "Local status " + missing.getStatus() + " not in settlement report");
+        }
+    }
+
+    private void unmatchedReportRow(SettlementReportSorter.Entry entry, MismatchSink sink,
+            Set<Long> matchedByPaymentId, Map<Long, PaymentSettlementView> missingInReport) throws IOException {
+        PaymentSettlementView byPaymentId = entry.paymentId().isEmpty() ? null
+                : paymentRepository.findSettlementViewByPaypalPaymentId(entry.paymentId()).orElse(null);
+
+        if (byPaymentId == null) {
+            sink.record(MismatchType.MISSING_LOCAL, entry, null, "No local payment for report row");
+            return;
+        }
+
+        // Same capture, outside the streamed period: an ordinary match
+        if (entry.transactionId().equals(byPaymentId.getPaypalCaptureId())) {
+            compare(entry, byPaymentId, sink);
+            return;
+        }
+
+        sink.record(MismatchType.CAPTURE_ID_MISMATCH, entry, byPaymentId,
+                "Local capture ID " + byPaymentId.getPaypalCaptureId());
+        // Already passed by the merge, or still ahead of it
+        if (missingInReport.remove(byPaymentId.getId()) == null) {
+            matchedByPaymentId.add(byPaymentId.getId());
+        }
+    }
+
+    private void compare(SettlementReportSorter.Entry entry, PaymentSettlementView payment, MismatchSink sink)
+            throws IOException {
+        boolean matched = true;
+
+        BigDecimal localAmount = payment.getCapturedAmount() != null
+                && payment.getCapturedAmount().signum() > 0 ? payment.getCapturedAmount() : payment.getAmount();
+        if (localAmount == null || entry.grossAmount().compareTo(localAmount) != 0
+                || !entry.currency().equalsIgnoreCase(payment.getCurrency())) {
+            sink.record(MismatchType.AMOUNT_MISMATCH, entry, payment,
+                    "Report " + entry.grossAmount() + " " + entry.currency()
+                            + " vs local " + localAmount + " " + payment.getCurrency());
+            matched = false;
+        }
+
+        String expectedStatus = expectedReportStatus(payment.getStatus());
+        if (!entry.status().equals(expectedStatus)) {
+            sink.record(MismatchType.STATUS_MISMATCH, entry, payment,
+                    "Report " + entry.status() + " vs local " + payment.getStatus());
+            matched = false;
+        }
+
+        if (matched) {
+            sink.result.countMatched();
+        }
+    }
+
+    /**
+     * Settlement status PayPal reports for a capture in the given local state.
+     */
+    static String expectedReportStatus(String localStatus) {
+        return switch (localStatus) {
+            case "CAPTURED", "COMPLETED", "AUTHORIZED" -> "completed";
+            case "PARTIALLY_REFUNDED" -> "partially_refunded";
+            case "REFUNDED" -> "refunded";
+            case "VOIDED" -> "voided";
+            default -> localStatus.toLowerCase();
+        };
+    }
+
+    private static PaymentSettlementView next(Iterator<PaymentSettlementView> local, MismatchSink sink) {
+        if (!local.hasNext()) {
+            return null;
+        }
+        sink.result.countLocalRow();
+        return local.next();
+    }
+
+    /**
+     * Counts mismatches and appends each one to the mismatch file.
+     */
+    private static final class MismatchSink {
+        private final ReconciliationResult result;
+        private final BufferedWriter out;
+
+        MismatchSink(ReconciliationResult result, BufferedWriter out) {
+            this.result = result;
+            this.out = out;
+        }
+
+        void record(MismatchType type, SettlementReportSorter.Entry entry, PaymentSettlementView payment,
+                String detail) throws IOException {
+            String transactionId = entry != null ? entry.transactionId() : payment.getPaypalCaptureId();
+            String paymentId = entry != null && !entry.paymentId().isEmpty()
+                    ? entry.paymentId()
+                    : payment != null ? payment.getPaypalPaymentId() : null;
+            Long localId = payment != null ? payment.getId() : null;
+
+            Mismatch mismatch = new Mismatch(type, transactionId, paymentId, localId, detail);
+            result.record(mismatch, SAMPLE_LIMIT);
+
+            out.write(type.name());
+            out.write(',');
+            out.write(csv(transactionId));
+            out.write(',');
+            out.write(csv(paymentId));
+            out.write(',');
+            out.write(localId == null ? "" : localId.toString());
+            out.write(',');
+            out.write(csv(detail));
+            out.newLine();
+        }
+
+        private static String csv(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.debug("Could not delete {}", path);
+                }
+            });
+        } catch (IOException e) {
+            log.debug("Could not clean up {}", dir);
+        }
+    }
+}
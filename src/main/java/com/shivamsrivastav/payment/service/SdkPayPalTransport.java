@@ -0,0 +1,71 @@
+package com.shivamsrivastav.payment.service;
+
+import com.paypal.api.payments.Authorization;
+import com.paypal.api.payments.Capture;
+import com.paypal.api.payments.Payment;
+import com.paypal.api.payments.PaymentExecution;
+import com.paypal.api.payments.Refund;
+import com.paypal.api.payments.RefundRequest;
+import com.paypal.api.payments.Sale;
+import com.paypal.base.rest.APIContext;
+import com.paypal.base.rest.PayPalRESTException;
+
+/**
+ * SDK PayPal Transport
+ * 
+ * Delegates to the PayPal REST SDK model methods, which open a plain
+ * HttpURLConnection per call.
+ * 
+ * @author Shivam Srivastav
+ */
+public class SdkPayPalTransport implements PayPalTransport {
+
+    @Override
+    public Payment createPayment(APIContext context, Payment payment) throws PayPalRESTException {
+        return payment.create(context);
+    }
+
+    @Override
+    public Payment executePayment(APIContext context, String paymentId, PaymentExecution execution)
+            throws PayPalRESTException {
+        Payment payment = new Payment();
+        payment.setId(paymentId);
+        return payment.execute(context, execution);
+    }
+
+    @Override
+    public Payment getPayment(APIContext context, String paymentId) throws PayPalRESTException {
+        return Payment.get(context, paymentId);
+    }
+
+    @Override
+    public Capture captureAuthorization(APIContext context, String authorizationId, Capture capture)
+            throws PayPalRESTException {
+        Authorization authorization = new Authorization();
+        authorization.setId(authorizationId);
+        return authorization.capture(context, capture);
+    }
+
+    @Override
+    public Authorization voidAuthorization(APIContext context, String authorizationId) throws PayPalRESTException {
+        Authorization authorization = new Authorization();
+        authorization.setId(authorizationId);
+        return authorization.doVoid(context);
+    }
+
+    @Override
+    public Refund refundSale(APIContext context, String saleId, RefundRequest refundRequest)
+            throws PayPalRESTException {
+        Sale sale = new Sale();
+        sale.setId(saleId);
+        return sale.refund(context, refundRequest);
+    }
+
+    @Override
+    public Refund refundCapture(APIContext context, String captureId, RefundRequest refundRequest)
+            throws PayPalRESTException {
+        Capture capture = new Capture();
+        capture.setId(captureId);
+        return capture.refund(context, refundRequest);
+    }
+}
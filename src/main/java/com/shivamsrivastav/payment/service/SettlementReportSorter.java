@@ -0,0 +1,262 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.exception.PaymentException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Settlement Report Sorter
+ *
+ * Reads a PayPal settlement/transaction report (CSV with a header row) and
+ * produces a copy sorted by transaction ID using an external merge sort:
+ * 1. The report is read in chunks of at most chunkLines rows; each chunk
+ *    is sorted in memory and written to a run file.
+ * 2. The run files are k-way merged into one sorted file.
+ * Heap use is bounded by the chunk size, not by the report size.
+ *
+ * Required columns (case-insensitive): transaction_id, payment_id,
+ * gross_amount, currency, status. Other columns are ignored.
+ *
+ * The sorted file holds one tab-separated {@link Entry} per line with the
+ * transaction ID first, so plain string order of the lines is the order
+ * of the transaction IDs.
+ *
+ * @author Shivam Srivastav
+ */
+public final class SettlementReportSorter {
+
+    private static final String[] REQUIRED_COLUMNS = {
+            "transaction_id", "payment_id", "gross_amount", "currency", "status"
+    };
+
+    private SettlementReportSorter() {
+    }
+
+    /**
+     * One report row, normalized.
+     */
+    public record Entry(String transactionId, String paymentId, BigDecimal grossAmount, String currency,
+            String status) {
+
+        String toLine() {
+            return String.join("\t", transactionId, paymentId, grossAmount.toPlainString(), currency, status);
+        }
+
+        static Entry fromLine(String line) {
+            String[] fields = line.split("\t", -1);
+            return new Entry(fields[0], fields[1], new BigDecimal(fields[2]), fields[3], fields[4]);
+        }
+    }
+
+    /**
+     * Sort the report into workDir.
+     *
+     * @return the sorted file, readable with {@link #open(Path)}
+     */
+    public static Path sort(Path report, Path workDir, int chunkLines) throws IOException {
+        List<Path> runs = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+            int[] columns = resolveColumns(reader.readLine());
+
+            List<String> chunk = new ArrayList<>(Math.min(chunkLines, 100_000));
+            String line;
+            long lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(parseRow(line, columns, lineNumber).toLine());
+                if (chunk.size() >= chunkLines) {
+                    runs.add(writeRun(chunk, workDir));
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty() || runs.isEmpty()) {
+                runs.add(writeRun(chunk, workDir));
+            }
+        }
+
+        if (runs.size() == 1) {
+            return runs.get(0);
+        }
+        return mergeRuns(runs, workDir);
+    }
+
+    /**
+     * Open a file produced by {@link #sort} for sequential reading.
+     */
+    public static SortedEntries open(Path sorted) throws IOException {
+        return new SortedEntries(Files.newBufferedReader(sorted, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sequential reader over a sorted file; next() returns null at the end.
+     */
+    public static final class SortedEntries implements Closeable {
+        private final BufferedReader reader;
+
+        private SortedEntries(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        public Entry next() throws IOException {
+            String line = reader.readLine();
+            return line == null ? null : Entry.fromLine(line);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private static Path writeRun(List<String> chunk, Path workDir) throws IOException {
+        Collections.sort(chunk);
+        Path run = Files.createTempFile(workDir, "run-", ".tsv");
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (String line : chunk) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        return run;
+    }
+
+    private static Path mergeRuns(List<Path> runs, Path workDir) throws IOException {
+        Path merged = Files.createTempFile(workDir, "sorted-", ".tsv");
+        List<BufferedReader> readers = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(merged, StandardCharsets.UTF_8)) {
+            PriorityQueue<RunHead> heads = new PriorityQueue<>();
+            for (Path run : runs) {
+                BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+                readers.add(reader);
+                String first = reader.readLine();
+                if (first != null) {
+                    heads.add(new RunHead(first, reader));
+                }
+            }
+
+            while (!heads.isEmpty()) {
+                RunHead head = heads.poll();
+                writer.write(head.line);
+                writer.newLine();
+                String next = head.reader.readLine();
+                if (next != null) {
+                    heads.add(new RunHead(next, head.reader));
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        return merged;
+    }
+
+    private record RunHead(String line, BufferedReader reader) implements Comparable<RunHead> {
+        @Override
+        public int compareTo(RunHead other) {
+            return line.compareTo(other.line);
+        }
+    }
+
+    private static int[] resolveColumns(String header) {
+        if (header == null) {
+            throw new PaymentException("Settlement report is empty");
+        }
+        List<String> names = parseCsvLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        int[] columns = new int[REQUIRED_COLUMNS.length];
+        for (int i = 0; i < REQUIRED_COLUMNS.length; i++) {
+            columns[i] = -1;
+            for (int c = 0; c < names.size(); c++) {
+                if (names.get(c).trim().toLowerCase(Locale.ROOT).equals(REQUIRED_COLUMNS[i])) {
+                    columns[i] = c;
+                    break;
+                }
+            }
+            if (columns[i] < 0) {
+                throw new PaymentException("Settlement report is missing column: " + REQUIRED_COLUMNS[i]);
+            }
+        }
+        return columns;
+    }
+
+    private static Entry parseRow(String line, int[] columns, long lineNumber) {
+        List<String> fields = parseCsvLine(line);
+        try {
+            return new Entry(
+                    clean(field(fields, columns[0])),
+                    clean(field(fields, columns[1])),
+                    new BigDecimal(field(fields, columns[2]).trim().replace(",", "")),
+                    clean(field(fields, columns[3])).toUpperCase(Locale.ROOT),
+                    clean(field(fields, columns[4])).toLowerCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new PaymentException("Invalid settlement report row at line " + lineNumber + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size()) {
+            throw new IllegalArgumentException("expected at least " + (index + 1) + " columns");
+        }
+        return fields.get(index);
+    }
+
+    private static String clean(String value) {
+        return value.trim().replace('\t', ' ');
+    }
+
+    /**
+     * Minimal RFC 4180 line parser (quoted fields, doubled quotes).
+     * Fields containing line breaks are not supported.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
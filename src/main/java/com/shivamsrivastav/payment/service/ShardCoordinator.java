@@ -0,0 +1,195 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.repository.ClusterNodeRepository;
+import com.shivamsrivastav.payment.repository.ShardLeaseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Shard Coordinator
+ *
+ * Decides which slice of background work this instance processes, so that
+ * scheduled jobs can run on every node without doing the same work twice.
+ *
+ * Work is split into cluster.shard-count shards by the row's key (e.g.
+ * id % shardCount). Ownership is kept in Postgres:
+ * - every node upserts its row in cluster_nodes on each heartbeat;
+ * - live nodes are sorted by node ID, and the node at index i is assigned
+ *   the shards with shard % nodeCount == i;
+ * - a node releases shards no longer assigned to it and leases the ones
+ *   that are. A lease is only taken when free, expired or already ours,
+ *   so a shard never has two owners.
+ *
+ * When a node joins or leaves (or stops heartbeating for longer than
+ * cluster.node-ttl-seconds) the assignment shifts on the next heartbeats
+ * and the shards move over. A crashed node's leases simply expire.
+ *
+ * Jobs read {@link #ownedShards()} at the start of each batch. Ownership
+ * can change while a batch runs, so jobs keep their own row-level guards
+ * (row locks, status checks, charge reservations); sharding spreads the
+ * work, it is not what makes it safe.
+ *
+ * With cluster.enabled=false this node owns every shard and no tables are
+ * touched.
+ *
+ * @author Shivam Srivastav
+ */
+@Component
+public class ShardCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private final ClusterNodeRepository nodeRepository;
+    private final ShardLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int shardCount;
+    private final long leaseSeconds;
+    private final long nodeTtlSeconds;
+    private final long heartbeatIntervalMs;
+    private final String nodeId;
+
+    /** Shards held after the last successful heartbeat, with a local expiry. */
+    private volatile Ownership ownership = new Ownership(new int[0], 0L);
+
+    private record Ownership(int[] shards, long validUntilNanos) {
+    }
+
+    public ShardCoordinator(ClusterNodeRepository nodeRepository, ShardLeaseRepository leaseRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${cluster.enabled:true}") boolean enabled,
+            @Value("${cluster.shard-count:64}") int shardCount,
+            @Value("${cluster.lease-seconds:30}") long leaseSeconds,
+            @Value("${cluster.node-ttl-seconds:30}") long nodeTtlSeconds,
+            @Value("${cluster.heartbeat-interval-ms:5000}") long heartbeatIntervalMs,
+            @Value("${cluster.node-id:}") String nodeId) {
+        this.nodeRepository = nodeRepository;
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.shardCount = shardCount;
+        this.leaseSeconds = leaseSeconds;
+        this.nodeTtlSeconds = nodeTtlSeconds;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+
+        Gauge.builder("cluster.shards.owned", () -> ownedShards().size())
+                .description("Background work shards owned by this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Shards this node may process right now. Empty if the last lease
+     * renewal is too old to be trusted.
+     */
+    public List<Integer> ownedShards() {
+        if (!enabled) {
+            return IntStream.range(0, shardCount).boxed().toList();
+        }
+        Ownership current = ownership;
+        if (System.nanoTime() - current.validUntilNanos() > 0) {
+            return List.of();
+        }
+        return IntStream.of(current.shards()).boxed().toList();
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Shard of a numeric key (entity id).
+     */
+    public int shardOf(long key) {
+        return (int) Math.floorMod(key, (long) shardCount);
+    }
+
+    // ==================== Heartbeat ====================
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval-ms:5000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            List<Integer> owned = transactionTemplate.execute(status -> renew());
+            int[] shards = owned.stream().mapToInt(Integer::intValue).toArray();
+            // Trust the leases locally for a little less than their DB lifetime,
+            // leaving one heartbeat of margin before another node may take them
+            long validNanos = Math.max(0L, leaseSeconds * 1_000_000_000L - heartbeatIntervalMs * 1_000_000L);
+            Ownership previous = ownership;
+            ownership = new Ownership(shards, started + validNanos);
+            if (previous.shards().length != shards.length) {
+                log.info("Node {} now owns {} of {} shards", nodeId, shards.length, shardCount);
+            }
+        } catch (RuntimeException e) {
+            log.error("Shard lease heartbeat failed for node {}: {}", nodeId, e.getMessage(), e);
+        }
+    }
+
+    private List<Integer> renew() {
+        leaseRepository.createShards(shardCount);
+        nodeRepository.heartbeat(nodeId);
+        nodeRepository.deleteStale(nodeTtlSeconds);
+
+        List<String> nodes = nodeRepository.findLiveNodeIds(nodeTtlSeconds);
+        int nodeIndex = nodes.indexOf(nodeId);
+        if (nodeIndex < 0) {
+            return List.of();
+        }
+
+        leaseRepository.releaseUnassigned(nodeId, shardCount, nodes.size(), nodeIndex);
+        leaseRepository.acquireAssigned(nodeId, shardCount, nodes.size(), nodeIndex, leaseSeconds);
+        return leaseRepository.findOwnedShards(nodeId);
+    }
+
+    /**
+     * Leave the cluster on shutdown so the remaining nodes take over the
+     * shards on their next heartbeat instead of waiting for leases to lapse.
+     */
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        ownership = new Ownership(new int[0], 0L);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                leaseRepository.releaseAll(nodeId);
+                nodeRepository.deleteById(nodeId);
+            });
+            log.info("Node {} left the cluster", nodeId);
+        } catch (RuntimeException e) {
+            log.warn("Could not release shard leases for node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
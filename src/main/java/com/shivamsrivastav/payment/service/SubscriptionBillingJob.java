@@ -0,0 +1,50 @@
+package com.shivamsrivastav.payment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Subscription Billing Job
+ * 
+ * Runs {@link SubscriptionBillingService#billDue(LocalDate)} on the
+ * billing.cron schedule. A run that is still going when the next one is
+ * due is not started twice.
+ * 
+ * Disable with billing.enabled=false.
+ * 
+ * @author Shivam Srivastav
+ */
+@Component
+@ConditionalOnProperty(name = "billing.enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionBillingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionBillingJob.class);
+
+    private final SubscriptionBillingService billingService;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public SubscriptionBillingJob(SubscriptionBillingService billingService) {
+        this.billingService = billingService;
+    }
+
+    @Scheduled(cron = "${billing.cron:0 0 2 * * *}")
+    public void billDueSubscriptions() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous billing run still in progress, skipping");
+            return;
+        }
+        try {
+            billingService.billDue(LocalDate.now());
+        } catch (Exception e) {
+            log.error("Billing run failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.shivamsrivastav.payment.service;
+
+import com.paypal.api.payments.Payment;
+import com.paypal.api.payments.RelatedResources;
+import com.paypal.api.payments.Sale;
+import com.paypal.base.rest.PayPalRESTException;
+import com.shivamsrivastav.payment.entity.Subscription;
+import com.shivamsrivastav.payment.entity.SubscriptionCharge;
+import com.shivamsrivastav.payment.entity.enums.SubscriptionChargeStatus;
+import com.shivamsrivastav.payment.entity.enums.SubscriptionStatus;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.repository.DueSubscription;
+import com.shivamsrivastav.payment.repository.SubscriptionChargeRepository;
+import com.shivamsrivastav.payment.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Subscription Billing Service
+ *
+ * Charges active subscriptions whose next_billing_date has arrived and
+ * advances next_billing_date by the subscription's BillingCycle, counted
+ * from start_date so month-end anchors survive short months.
+ *
+ * Scanning: due subscription IDs are read in batches with a keyset on
+ * (next_billing_date, id) over the partial index idx_subscriptions_due.
+ * Each batch is charged by a pool of billing.parallelism workers; the next
+ * batch is read once the current one is done. Only subscriptions in the
+ * shards this node owns are scanned ({@link ShardCoordinator}).
+ *
+ * No double charges: before PayPal is called, a subscription_charges row
+ * is reserved for (subscription, billing date) and its request ID is sent
+ * as PayPal-Request-Id. The row is marked COMPLETED and the date advanced
+ * in the same transaction. A charge whose outcome is unknown (timeout,
+ * 5xx, crash) stays PENDING and is retried with the same request ID, so
+ * PayPal returns the first result instead of charging again. A run that
+ * is interrupted simply starts over: subscriptions already billed are no
+ * longer due.
+ *
+ * A declined charge (4xx from PayPal) is FAILED and retried on the next
+ * run with a new request ID; after billing.max-attempts declines the
+ * subscription is SUSPENDED.
+ *
+ * @author Shivam Srivastav
+ */
+@Service
+public class SubscriptionBillingService {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionBillingService.class);
+
+    /**
+     * Result of billing one subscription.
+     */
+    public enum Outcome {
+        CHARGED, DECLINED, SUSPENDED, UNKNOWN, SKIPPED
+    }
+
+    /**
+     * Charge to send to PayPal, read in the reservation transaction.
+     */
+    private record PendingCharge(Long chargeId, String agreementId, BigDecimal amount, String currency,
+            String description, String requestId) {
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionChargeRepository chargeRepository;
+    private final PayPalService payPalService;
+    private final ShardCoordinator shardCoordinator;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    @Value("${billing.batch-size:500}")
+    private int batchSize;
+
+    @Value("${billing.parallelism:16}")
+    private int parallelism;
+
+    @Value("${billing.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    public SubscriptionBillingService(SubscriptionRepository subscriptionRepository,
+            SubscriptionChargeRepository chargeRepository, PayPalService payPalService,
+            ShardCoordinator shardCoordinator, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.chargeRepository = chargeRepository;
+        this.payPalService = payPalService;
+        this.shardCoordinator = shardCoordinator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("billing.charges")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Bill every active subscription due on or before the given date.
+     *
+     * @return number of subscriptions processed, by outcome
+     */
+    public Map<Outcome, Integer> billDue(LocalDate today) {
+        Map<Outcome, Integer> totals = new EnumMap<>(Outcome.class);
+        LocalDate afterDate = LocalDate.EPOCH;
+        Long afterId = 0L;
+        long started = System.currentTimeMillis();
+
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("billing-", 0).factory()
+                : Thread.ofPlatform().name("billing-", 0).factory();
+
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism, threads)) {
+            while (true) {
+                List<Integer> shards = shardCoordinator.ownedShards();
+                if (shards.isEmpty()) {
+                    log.warn("No shards owned, stopping billing run");
+                    break;
+                }
+                List<DueSubscription> batch = subscriptionRepository.findDue(today, afterDate, afterId,
+                        shardCoordinator.shardCount(), shards, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                List<Future<Outcome>> results = new ArrayList<>(batch.size());
+                for (DueSubscription due : batch) {
+                    results.add(workers.submit(() -> billOne(due.id(), today)));
+                }
+                for (Future<Outcome> result : results) {
+                    totals.merge(await(result), 1, Integer::sum);
+                }
+
+                // Resume after the last row as it was read. A subscription more
+                // than one cycle behind reappears further on with its next date
+                // and is caught up one billing date at a time.
+                DueSubscription last = batch.get(batch.size() - 1);
+                afterDate = last.nextBillingDate();
+                afterId = last.id();
+            }
+        }
+
+        log.info("Billing run for {} finished: {} (tookMs={})", today, totals,
+                System.currentTimeMillis() - started);
+        return totals;
+    }
+
+    /**
+     * Bill one subscription if it is active and due.
+     */
+    public Outcome billOne(Long subscriptionId, LocalDate today) {
+        PendingCharge charge;
+        try {
+            charge = transactionTemplate.execute(status -> reserve(subscriptionId, today));
+        } catch (RuntimeException e) {
+            log.error("Could not reserve charge for subscription id={}: {}", subscriptionId, e.getMessage(), e);
+            return count(Outcome.UNKNOWN);
+        }
+        if (charge == null) {
+            return count(Outcome.SKIPPED);
+        }
+
+        Payment payment;
+        try {
+            payment = payPalService.chargeBillingAgreement(charge.agreementId(), charge.amount(),
+                    charge.currency(), charge.description(), charge.requestId());
+        } catch (PaymentException e) {
+            if (isDecline(e)) {
+                return count(transactionTemplate.execute(status -> recordDecline(charge, e.getMessage())));
+            }
+            // Outcome unknown: keep the charge PENDING so the next run retries
+            // it with the same request ID
+            log.warn("Charge {} for subscription id={} left pending: {}", charge.requestId(), subscriptionId,
+                    e.getMessage());
+            return count(Outcome.UNKNOWN);
+        }
+
+        if ("failed".equalsIgnoreCase(payment.getState())) {
+            return count(transactionTemplate.execute(status -> recordDecline(charge, "Payment state failed")));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> recordSuccess(charge, payment));
+        return count(Outcome.CHARGED);
+    }
+
+    // ==================== Transactions ====================
+
+    private PendingCharge reserve(Long subscriptionId, LocalDate today) {
+        Subscription subscription = subscriptionRepository.findForUpdateById(subscriptionId).orElse(null);
+        if (subscription == null
+                || subscription.getStatus() != SubscriptionStatus.ACTIVE
+                || subscription.getNextBillingDate() == null
+                || subscription.getNextBillingDate().isAfter(today)) {
+            return null;
+        }
+        if (subscription.getAmount() == null || subscription.getPaypalSubscriptionId() == null) {
+            log.warn("Subscription id={} has no amount or billing agreement, skipping", subscriptionId);
+            return null;
+        }
+
+        LocalDate billingDate = subscription.getNextBillingDate();
+        SubscriptionCharge charge = chargeRepository
+                .findBySubscriptionIdAndBillingDate(subscriptionId, billingDate)
+                .orElse(null);
+
+        if (charge == null) {
+            charge = chargeRepository.save(SubscriptionCharge.builder()
+                    .subscriptionId(subscriptionId)
+                    .billingDate(billingDate)
+                    .amount(subscription.getAmount())
+                    .currency(subscription.getCurrency())
+                    .requestId(requestId(subscriptionId, billingDate, 1))
+                    .build());
+        } else if (charge.getStatus() == SubscriptionChargeStatus.COMPLETED) {
+            // Charged, but the date was not advanced; never charge it again
+            advance(subscription, billingDate);
+            return null;
+        } else if (charge.getStatus() == SubscriptionChargeStatus.FAILED) {
+            charge.setStatus(SubscriptionChargeStatus.PENDING);
+            charge.setRequestId(requestId(subscriptionId, billingDate, charge.getAttempts() + 1));
+        }
+
+        String description = (subscription.getName() != null ? subscription.getName() : "Subscription")
+                + " - " + billingDate;
+        return new PendingCharge(charge.getId(), subscription.getPaypalSubscriptionId(), charge.getAmount(),
+                charge.getCurrency(), description, charge.getRequestId());
+    }
+
+    private void recordSuccess(PendingCharge pending, Payment payment) {
+        SubscriptionCharge charge = chargeRepository.findById(pending.chargeId()).orElseThrow();
+        charge.setStatus(SubscriptionChargeStatus.COMPLETED);
+        charge.setAttempts(charge.getAttempts() + 1);
+        charge.setPaypalPaymentId(payment.getId());
+        charge.setPaypalSaleId(saleId(payment));
+        charge.setErrorMessage(null);
+
+        subscriptionRepository.findForUpdateById(charge.getSubscriptionId())
+                .ifPresent(subscription -> advance(subscription, charge.getBillingDate()));
+        log.info("Charged subscription id={} for {}", charge.getSubscriptionId(), charge.getBillingDate());
+    }
+
+    private Outcome recordDecline(PendingCharge pending, String reason) {
+        SubscriptionCharge charge = chargeRepository.findById(pending.chargeId()).orElseThrow();
+        charge.setStatus(SubscriptionChargeStatus.FAILED);
+        charge.setAttempts(charge.getAttempts() + 1);
+        charge.setErrorMessage(reason);
+
+        if (charge.getAttempts() < maxAttempts) {
+            log.warn("Charge for subscription id={} declined (attempt {}/{}): {}", charge.getSubscriptionId(),
+                    charge.getAttempts(), maxAttempts, reason);
+            return Outcome.DECLINED;
+        }
+
+        subscriptionRepository.findForUpdateById(charge.getSubscriptionId()).ifPresent(subscription -> {
+            if (subscription.getStatus() == SubscriptionStatus.ACTIVE) {
+                subscription.setStatus(SubscriptionStatus.SUSPENDED);
+            }
+        });
+        log.warn("Subscription id={} suspended after {} declined charges", charge.getSubscriptionId(),
+                charge.getAttempts());
+        return Outcome.SUSPENDED;
+    }
+
+    private static void advance(Subscription subscription, LocalDate billedDate) {
+        if (billedDate.equals(subscription.getNextBillingDate())) {
+            int interval = subscription.getBillingInterval() != null ? subscription.getBillingInterval() : 1;
+            subscription.setNextBillingDate(
+                    subscription.getBillingCycle().next(subscription.getStartDate(), billedDate, interval));
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    static String requestId(Long subscriptionId, LocalDate billingDate, int attempt) {
+        return "sub-" + subscriptionId + "-" + billingDate + "-" + attempt;
+    }
+
+    /**
+     * A 4xx (other than 429) means PayPal received and rejected the charge.
+     */
+    private static boolean isDecline(PaymentException e) {
+        if (e.getCause() instanceof PayPalRESTException cause) {
+            int status = cause.getResponsecode();
+            return status >= 400 && status < 500 && status != 429;
+        }
+        return false;
+    }
+
+    private static String saleId(Payment payment) {
+        if (payment.getTransactions() == null || payment.getTransactions().isEmpty()
+                || payment.getTransactions().get(0).getRelatedResources() == null) {
+            return null;
+        }
+        for (RelatedResources resources : payment.getTransactions().get(0).getRelatedResources()) {
+            Sale sale = resources.getSale();
+            if (sale != null) {
+                return sale.getId();
+            }
+        }
+        return null;
+    }
+
+    private Outcome count(Outcome outcome) {
+        outcomes.get(outcome).increment();
+        return outcome;
+    }
+
+    private static Outcome await(Future<Outcome> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentException("Billing run interrupted", e);
+        } catch (ExecutionException e) {
+            log.error("Billing task failed: {}", e.getCause().getMessage(), e.getCause());
+            return Outcome.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.shivamsrivastav.payment.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Webhook Archive Job
+ *
+ * Maintains the monthly partitions of webhook_events (see migration V13):
+ * 1. Creates the partitions for the current month and the next
+ *    webhook.archive.months-ahead months, so inserts never fall into the
+ *    DEFAULT partition.
+ * 2. Archives partitions older than webhook.archive.retention-months:
+ *    the partition is exported with COPY (CopyManager) to a gzip-compressed
+ *    CSV file in webhook.archive.directory, then detached and dropped, and
+ *    the event IDs of that month are removed from webhook_event_keys.
+ *    Dropping a partition is a metadata change; no rows are deleted one by
+ *    one and nothing is left for vacuum.
+ *
+ * Export and drop run in one transaction that first locks the partition
+ * in SHARE mode, so no row can be written between the COPY and the DROP
+ * (writers wait for the commit). If anything fails, the transaction rolls
+ * back and the partition is still attached for the next run.
+ *
+ * A partition that still has events waiting to be processed or retried is
+ * kept. Only the node owning shard 0 runs the job, so partitions are not
+ * exported twice.
+ *
+ * Disable with webhook.archive.enabled=false.
+ *
+ * @author Shivam Srivastav
+ */
+@Component
+@ConditionalOnProperty(name = "webhook.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class WebhookArchiveJob {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookArchiveJob.class);
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("webhook_events_(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ShardCoordinator shardCoordinator;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${webhook.archive.retention-months:6}")
+    private int retentionMonths;
+
+    @Value("${webhook.archive.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${webhook.archive.directory:webhook-archive}")
+    private String directory;
+
+    public WebhookArchiveJob(JdbcTemplate jdbcTemplate, DataSource dataSource, ShardCoordinator shardCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.shardCoordinator = shardCoordinator;
+    }
+
+    @Scheduled(cron = "${webhook.archive.cron:0 30 3 * * *}")
+    public void run() {
+        if (!shardCoordinator.ownedShards().contains(0)) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous webhook archive run still in progress, skipping");
+            return;
+        }
+        try {
+            createUpcomingPartitions(YearMonth.now());
+            archiveOldPartitions(YearMonth.now().minusMonths(retentionMonths));
+        } catch (Exception e) {
+            log.error("Webhook archive run failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // ==================== Partition Creation ====================
+
+    private void createUpcomingPartitions(YearMonth current) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                    + " PARTITION OF webhook_events FOR VALUES FROM ('" + month.atDay(1)
+                    + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+    }
+
+    // ==================== Archival ====================
+
+    /**
+     * Archive every monthly partition before the given month.
+     */
+    private void archiveOldPartitions(YearMonth keepFrom) throws IOException, SQLException {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = 'webhook_events' ORDER BY c.relname", String.class);
+
+        for (String partition : partitions) {
+            Matcher name = PARTITION_NAME.matcher(partition);
+            if (!name.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(name.group(1)), Integer.parseInt(name.group(2)));
+            if (!month.isBefore(keepFrom)) {
+                continue;
+            }
+
+            Boolean pending = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition
+                    + " WHERE processed = FALSE AND dead_letter = FALSE)", Boolean.class);
+            if (Boolean.TRUE.equals(pending)) {
+                log.warn("Not archiving {}: it still has unprocessed events", partition);
+                continue;
+            }
+
+            archive(partition, month);
+        }
+    }
+
+    private void archive(String partition, YearMonth month) throws IOException, SQLException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(partition + ".csv.gz");
+        Path temp = dir.resolve(partition + ".csv.gz.tmp");
+
+        long rows;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                // Blocks writes to the partition until it is dropped
+                statement.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                    CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+                    rows = copy.copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER true)", out);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                // Only drop once the export is safely on disk
+                statement.execute("ALTER TABLE webhook_events DETACH PARTITION " + partition);
+                statement.execute("DROP TABLE " + partition);
+                try (PreparedStatement keys = connection.prepareStatement(
+                        "DELETE FROM webhook_event_keys WHERE received_at >= ? AND received_at < ?")) {
+                    keys.setObject(1, month.atDay(1).atStartOfDay());
+                    keys.setObject(2, month.plusMonths(1).atDay(1).atStartOfDay());
+                    keys.executeUpdate();
+                }
+                connection.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                Files.deleteIfExists(temp);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        log.info("Archived {} ({} rows) to {}", partition, rows, target);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("webhook_events_%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+}
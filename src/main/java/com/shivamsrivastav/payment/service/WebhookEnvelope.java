@@ -0,0 +1,122 @@
+package com.shivamsrivastav.payment.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+
+/**
+ * Webhook Envelope
+ *
+ * The top-level fields of a PayPal webhook that are needed to store and
+ * route it: event ID, event type, resource type and resource ID.
+ *
+ * The envelope is read with a streaming {@link JsonParser} instead of
+ * building a JsonNode tree. Values of other fields (links, summary, most of
+ * the resource) are skipped token by token, so storing a webhook allocates
+ * four strings rather than a tree the size of the payload. Skipping still
+ * tokenizes the whole document, so malformed JSON is rejected as before.
+ *
+ * Only the resource subtree is ever materialized, by the event handler,
+ * via {@link #readResource(ObjectMapper, String)}.
+ *
+ * Missing fields are returned as "".
+ *
+ * @author Shivam Srivastav
+ */
+record WebhookEnvelope(String eventId, String eventType, String resourceType, String resourceId) {
+
+    static WebhookEnvelope parse(JsonFactory factory, String payload) throws IOException {
+        try (JsonParser parser = factory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+
+            String eventId = "";
+            String eventType = "";
+            String resourceType = "";
+            String resourceId = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> eventId = text(parser);
+                    case "event_type" -> eventType = text(parser);
+                    case "resource_type" -> resourceType = text(parser);
+                    case "resource" -> resourceId = resourceId(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            return new WebhookEnvelope(eventId, eventType, resourceType, resourceId);
+        }
+    }
+
+    /**
+     * Envelope of an event that has already been parsed into a tree
+     * (batch replay, where the array is split with readTree).
+     */
+    static WebhookEnvelope of(JsonNode root) {
+        JsonNode resource = root.path("resource");
+        return new WebhookEnvelope(root.path("id").asText(), root.path("event_type").asText(),
+                root.path("resource_type").asText(), resource.isObject() ? resource.path("id").asText() : "");
+    }
+
+    /**
+     * Parse only the "resource" object of a stored payload. The fields
+     * around it are skipped without building nodes.
+     *
+     * @return the resource, or a missing node if the payload has none
+     */
+    static JsonNode readResource(ObjectMapper objectMapper, String payload) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("resource".equals(field)) {
+                    return objectMapper.readTree(parser);
+                }
+                parser.skipChildren();
+            }
+            return MissingNode.getInstance();
+        }
+    }
+
+    /**
+     * ID of the resource object the parser is positioned on; the rest of
+     * the resource is skipped.
+     */
+    private static String resourceId(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return "";
+        }
+        String id = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return "";
+    }
+}
@@ -0,0 +1,83 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.entity.WebhookEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Webhook Ingestion Worker
+ *
+ * Drains due webhook events and hands them to the per-resource lanes in
+ * {@link WebhookService}: events persisted by the controller in async
+ * ingestion mode (webhook.ingestion.mode=async), and, in either mode,
+ * failed events whose retry backoff has elapsed.
+ *
+ * Events are claimed with SELECT ... FOR UPDATE SKIP LOCKED, so several
+ * workers and nodes can drain the queue at once without blocking on each
+ * other. Each node only claims events in the shards it owns
+ * ({@link ShardCoordinator}), keyed by resource so that one resource's
+ * events are never processed on two nodes at once.
+ *
+ * Backpressure: lanes have bounded queues, and each poll only claims as
+ * many rows as there is free lane capacity. Claimed events a lane rejects
+ * are released and picked up by a later poll.
+ *
+ * @author Shivam Srivastav
+ */
+@Component
+public class WebhookIngestionWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookIngestionWorker.class);
+
+    private final WebhookService webhookService;
+    private final ShardCoordinator shardCoordinator;
+    private final int batchSize;
+
+    public WebhookIngestionWorker(WebhookService webhookService, ShardCoordinator shardCoordinator,
+            @Value("${webhook.ingestion.batch-size:100}") int batchSize) {
+        this.webhookService = webhookService;
+        this.shardCoordinator = shardCoordinator;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Claim the next due events and dispatch them to their lanes.
+     */
+    @Scheduled(fixedDelayString = "${webhook.ingestion.poll-interval-ms:1000}")
+    public void poll() {
+        int capacity = webhookService.remainingLaneCapacity();
+        if (capacity == 0) {
+            log.debug("Webhook lanes full, skipping poll");
+            return;
+        }
+
+        List<Integer> shards = shardCoordinator.ownedShards();
+        if (shards.isEmpty()) {
+            return;
+        }
+
+        List<WebhookEvent> claimed = webhookService.claimDue(shardCoordinator.shardCount(), shards,
+                Math.min(batchSize, capacity));
+
+        // Once an event for a resource is deferred, later events for the
+        // same resource must wait too, or they would overtake it.
+        Set<String> deferred = new HashSet<>();
+        List<Long> released = new ArrayList<>();
+        for (WebhookEvent event : claimed) {
+            String key = WebhookService.orderingKey(event);
+            if (deferred.contains(key) || !webhookService.dispatch(event)) {
+                deferred.add(key);
+                released.add(event.getId());
+            }
+        }
+        webhookService.releaseClaims(released);
+    }
+}
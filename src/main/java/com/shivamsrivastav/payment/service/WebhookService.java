@@ -1,21 +1,59 @@
 package com.shivamsrivastav.payment.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shivamsrivastav.payment.dto.response.WebhookBacklogResponse;
+import com.shivamsrivastav.payment.entity.Payment;
 import com.shivamsrivastav.payment.entity.WebhookEvent;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import com.shivamsrivastav.payment.repository.SubscriptionRepository;
+import com.shivamsrivastav.payment.repository.UnprocessedWebhookEvent;
 import com.shivamsrivastav.payment.repository.WebhookEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Webhook Service
  * 
  * Handles incoming PayPal webhooks.
  * 
+ * Every event is stored before it is handled. A failed event is not lost:
+ * it is retried by {@link WebhookIngestionWorker} with exponential backoff
+ * and jitter (webhook.retry.*), and dead-lettered once
+ * webhook.retry.max-attempts is reached.
+ * 
  * @author Shivam Srivastav
  */
 @Service
@@ -23,116 +61,548 @@ public class WebhookService {
 
     private static final Logger log = LoggerFactory.getLogger(WebhookService.class);
 
+    private static final int MAX_BACKLOG_PAGE_SIZE = 500;
+
     private final WebhookEventRepository webhookEventRepository;
+    private final PaymentRepository paymentRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final IdempotencyResponseCache responseCache;
+    private final WebhookPayloadCodec payloadCodec;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Lanes for stored-event processing. Events are hashed by resource ID,
+     * so events for one capture/authorization/subscription are applied in
+     * order while different resources are processed in parallel.
+     */
+    private final PartitionedExecutor lanes;
+
+    /**
+     * Stored events currently queued or running on a lane.
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long claimTimeoutSeconds;
+    private final Counter retriesScheduled;
+    private final Counter deadLettered;
 
-    public WebhookService(WebhookEventRepository webhookEventRepository, ObjectMapper objectMapper) {
+    public WebhookService(WebhookEventRepository webhookEventRepository, PaymentRepository paymentRepository,
+            SubscriptionRepository subscriptionRepository, IdempotencyResponseCache responseCache,
+            WebhookPayloadCodec payloadCodec, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${webhook.ingestion.lanes:8}") int laneCount,
+            @Value("${webhook.ingestion.lane-capacity:250}") int laneCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${webhook.retry.max-attempts:8}") int maxAttempts,
+            @Value("${webhook.retry.base-delay-ms:5000}") long baseDelayMs,
+            @Value("${webhook.retry.max-delay-ms:3600000}") long maxDelayMs,
+            @Value("${webhook.retry.claim-timeout-seconds:300}") long claimTimeoutSeconds) {
         this.webhookEventRepository = webhookEventRepository;
+        this.paymentRepository = paymentRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.responseCache = responseCache;
+        this.payloadCodec = payloadCodec;
         this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lanes = new PartitionedExecutor("webhook-lane", laneCount, laneCapacity, virtualThreads);
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.claimTimeoutSeconds = claimTimeoutSeconds;
+        this.retriesScheduled = Counter.builder("webhook.events.failed")
+                .tag("outcome", "retry")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder("webhook.events.failed")
+                .tag("outcome", "dead_letter")
+                .register(meterRegistry);
+
+        for (int i = 0; i < laneCount; i++) {
+            int lane = i;
+            Gauge.builder("webhook.lane.queue.depth", lanes, l -> l.queueDepth(lane))
+                    .tag("lane", String.valueOf(lane))
+                    .description("Webhook events waiting on this lane")
+                    .register(meterRegistry);
+            TimeGauge.builder("webhook.lane.lag", lanes, TimeUnit.MILLISECONDS, l -> l.lagMillis(lane))
+                    .tag("lane", String.valueOf(lane))
+                    .description("Age of the oldest event running or queued on this lane")
+                    .register(meterRegistry);
+        }
     }
 
     /**
-     * Process incoming webhook payload.
+     * Process incoming webhook payload synchronously on the caller's thread.
+     * The event is committed first, claimed by this thread, so a handling
+     * failure leaves it scheduled for retry instead of rolling it back.
      */
-    @Transactional
     public void processWebhook(String payload) {
+        WebhookEnvelope envelope;
+        try {
+            envelope = WebhookEnvelope.parse(objectMapper.getFactory(), payload);
+        } catch (Exception e) {
+            log.error("Error processing webhook payload: {}", e.getMessage(), e);
+            throw new RuntimeException("Webhook processing failed", e);
+        }
+
+        Long eventRowId = transactionTemplate.execute(status ->
+                recordEvent(envelope, payload, LocalDateTime.now().plusSeconds(claimTimeoutSeconds)));
+        if (eventRowId == null) {
+            return;
+        }
+
+        processStoredEvent(eventRowId);
+    }
+
+    /**
+     * Persist the raw webhook payload without handling it.
+     * Used in async ingestion mode: the request thread only pays for one
+     * conditional insert, and {@link WebhookIngestionWorker}
+     * applies the event later.
+     */
+    @Transactional
+    public void ingestWebhook(String payload) {
+        try {
+            WebhookEnvelope envelope = WebhookEnvelope.parse(objectMapper.getFactory(), payload);
+            if (recordEvent(envelope, payload, LocalDateTime.now()) != null) {
+                log.debug("Webhook queued for processing: eventId={}, type={}",
+                        envelope.eventId(), envelope.eventType());
+            }
+        } catch (Exception e) {
+            log.error("Error ingesting webhook payload: {}", e.getMessage(), e);
+            throw new RuntimeException("Webhook ingestion failed", e);
+        }
+    }
+
+    /**
+     * Persist a JSON array of webhook payloads in one transaction, e.g. when
+     * replaying events exported from PayPal.
+     * One statement registers the event IDs in webhook_event_keys and
+     * returns those not received before; only these are inserted, as JDBC
+     * batches (see hibernate.jdbc.batch_size).
+     *
+     * @return number of new events stored
+     * @throws PaymentException if the body is not a JSON array of event
+     *                          objects with an id
+     */
+    @Transactional
+    public int ingestWebhooks(String payloadArray) {
+        // A malformed batch is the caller's error (400), not an ingestion failure
+        JsonNode array;
         try {
-            JsonNode root = objectMapper.readTree(payload);
-            String eventId = root.path("id").asText();
-            String eventType = root.path("event_type").asText();
-            String resourceType = root.path("resource_type").asText();
-
-            // 1. Idempotency Check
-            if (webhookEventRepository.findByEventId(eventId).isPresent()) {
-                log.info("Webhook event already processed: {}", eventId);
-                return;
+            array = objectMapper.readTree(payloadArray);
+        } catch (JsonProcessingException e) {
+            throw new PaymentException("Invalid webhook batch: " + e.getOriginalMessage(), e);
+        }
+        if (array == null || !array.isArray()) {
+            throw new PaymentException("Expected a JSON array of webhook events");
+        }
+
+        Map<String, WebhookEvent> events = new LinkedHashMap<>();
+        for (int i = 0; i < array.size(); i++) {
+            JsonNode root = array.get(i);
+            if (!root.isObject() || root.path("id").asText("").isEmpty()) {
+                throw new PaymentException("Webhook event at index " + i + " is not an object with an id");
             }
+            WebhookEvent event = buildEvent(WebhookEnvelope.of(root), root.toString(), LocalDateTime.now());
+            events.putIfAbsent(event.getEventId(), event);
+        }
 
-            String resourceId = "";
-            if (root.has("resource") && root.path("resource").has("id")) {
-                resourceId = root.path("resource").path("id").asText();
+        try {
+            if (!events.isEmpty()) {
+                Set<String> newIds = new HashSet<>(
+                        webhookEventRepository.insertNewKeys(events.keySet(), LocalDateTime.now()));
+                events.keySet().retainAll(newIds);
             }
 
-            log.info("Processing webhook: eventId={}, type={}, resourceId={}",
-                    eventId, eventType, resourceId);
+            webhookEventRepository.saveAll(events.values());
+        } catch (RuntimeException e) {
+            log.error("Error ingesting webhook batch: {}", e.getMessage(), e);
+            throw new RuntimeException("Webhook batch ingestion failed", e);
+        }
+
+        log.info("Webhook batch stored: received={}, new={}", array.size(), events.size());
+        return events.size();
+    }
+
+    /**
+     * List unprocessed events (pending, retrying or dead-lettered) oldest
+     * first, one keyset page at a time.
+     *
+     * @param cursor nextCursor from the previous page, or null for the first page
+     * @param size   requested page size (capped at MAX_BACKLOG_PAGE_SIZE)
+     */
+    @Transactional(readOnly = true)
+    public WebhookBacklogResponse listBacklog(String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_BACKLOG_PAGE_SIZE));
+
+        LocalDateTime afterReceivedAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+        Long afterId = 0L;
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            afterReceivedAt = after.timestamp();
+            afterId = after.id();
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<UnprocessedWebhookEvent> rows = webhookEventRepository.findUnprocessed(afterReceivedAt, afterId,
+                PageRequest.of(0, pageSize + 1));
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            UnprocessedWebhookEvent last = rows.get(pageSize - 1);
+            nextCursor = KeysetCursor.encode(last.receivedAt(), last.id());
+        }
+        return new WebhookBacklogResponse(rows, nextCursor);
+    }
+
+    /**
+     * Claim up to limit due events in the given shards. Claimed events are
+     * invisible to other workers until claim-timeout-seconds pass, which
+     * only happens if this node dies before finishing them.
+     */
+    public List<WebhookEvent> claimDue(int shardCount, List<Integer> shards, int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = webhookEventRepository.claimDue(now, now.plusSeconds(claimTimeoutSeconds),
+                    shardCount, shards, limit);
+            if (ids.isEmpty()) {
+                return List.<WebhookEvent>of();
+            }
+            // Payload columns are lazy, so this does not read the payloads
+            Map<Long, WebhookEvent> byId = new HashMap<>();
+            webhookEventRepository.findAllById(ids).forEach(event -> byId.put(event.getId(), event));
+            return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        });
+    }
+
+    /**
+     * Hand claimed events that could not be dispatched back to the queue.
+     */
+    public void releaseClaims(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                webhookEventRepository.releaseClaims(ids, LocalDateTime.now()));
+    }
+
+    /**
+     * Queue a previously ingested event on its resource lane.
+     *
+     * @return false if the lane is full; the event stays pending and is
+     *         picked up again by a later poll
+     */
+    public boolean dispatch(WebhookEvent event) {
+        Long id = event.getId();
+        if (!inFlight.add(id)) {
+            return true;
+        }
+
+        String key = orderingKey(event);
+        long receivedAt = event.getReceivedAt()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
 
-            // 2. Save event log
-            WebhookEvent event = WebhookEvent.builder()
-                    .eventId(eventId)
-                    .eventType(eventType)
-                    .resourceType(resourceType)
-                    .resourceId(resourceId)
-                    .payload(payload)
-                    .receivedAt(LocalDateTime.now())
-                    .build();
+        boolean accepted = lanes.submit(key, receivedAt, () -> processStoredEvent(id));
+        if (!accepted) {
+            inFlight.remove(id);
+        }
+        return accepted;
+    }
 
-            event = webhookEventRepository.save(event);
+    /**
+     * Events for the same PayPal resource share a lane. Events without a
+     * resource have no ordering constraint and are spread by event ID.
+     */
+    static String orderingKey(WebhookEvent event) {
+        return event.getResourceId() == null || event.getResourceId().isEmpty()
+                ? event.getEventId()
+                : event.getResourceId();
+    }
 
-            // 3. Handle specific events
-            handleEvent(eventType, root.path("resource"));
+    /**
+     * Free slots across all lanes, used by the poller for backpressure.
+     */
+    public int remainingLaneCapacity() {
+        return lanes.remainingCapacity();
+    }
 
-            // 4. Mark as processed
-            event.setProcessed(true);
-            event.setProcessedAt(LocalDateTime.now());
-            webhookEventRepository.save(event);
+    /**
+     * Apply a previously ingested event on the current lane thread.
+     * Already processed events are skipped.
+     */
+    private void processStoredEvent(Long id) {
+        try {
+            List<String> changedKeys = transactionTemplate.execute(status -> {
+                WebhookEvent event = webhookEventRepository.findById(id).orElse(null);
+                if (event == null || event.isProcessed() || event.isDeadLetter()) {
+                    return List.<String>of();
+                }
+
+                log.info("Processing stored webhook: eventId={}, type={}, resourceId={}",
+                        event.getEventId(), event.getEventType(), event.getResourceId());
+
+                List<String> keys;
+                try {
+                    keys = handleEvent(event.getEventType(),
+                            WebhookEnvelope.readResource(objectMapper, payloadCodec.decode(event)));
+                } catch (Exception e) {
+                    // Keep the cause so error_message says why the event waits
+                    throw new RuntimeException("Webhook processing failed: " + e.getMessage(), e);
+                }
 
+                markProcessed(event);
+                return keys;
+            });
+            // After commit, so a concurrent read cannot re-cache the old state
+            changedKeys.forEach(responseCache::evict);
         } catch (Exception e) {
-            log.error("Error processing webhook payload: {}", e.getMessage(), e);
-            throw new RuntimeException("Webhook processing failed", e);
+            log.error("Error processing webhook event id={}: {}", id, e.getMessage(), e);
+            recordFailure(id, e.getMessage());
+        } finally {
+            inFlight.remove(id);
         }
     }
 
-    private void handleEvent(String eventType, JsonNode resource) {
-        switch (eventType) {
-            case "PAYMENT.CAPTURE.COMPLETED":
-                handlePaymentCaptureCompleted(resource);
-                break;
-            case "PAYMENT.CAPTURE.REFUNDED":
-                handlePaymentCaptureRefunded(resource);
-                break;
-            case "PAYMENT.AUTHORIZATION.VOIDED":
-                handleAuthorizationVoided(resource);
-                break;
-            case "BILLING.SUBSCRIPTION.ACTIVATED":
-                handleSubscriptionActivated(resource);
-                break;
-            case "BILLING.SUBSCRIPTION.CANCELLED":
-                handleSubscriptionCancelled(resource);
-                break;
-            default:
-                log.info("Unhandled webhook event type: {}", eventType);
+    /**
+     * Record a failed processing attempt and schedule the next one, or
+     * dead-letter the event once its attempts are used up.
+     */
+    private void recordFailure(Long id, String errorMessage) {
+        transactionTemplate.executeWithoutResult(status ->
+                webhookEventRepository.findById(id).ifPresent(event -> {
+                    event.setRetryCount(event.getRetryCount() + 1);
+                    event.setErrorMessage(truncate(errorMessage, 1000));
+                    if (event.getRetryCount() >= maxAttempts) {
+                        event.setDeadLetter(true);
+                        event.setNextAttemptAt(null);
+                        deadLettered.increment();
+                        log.error("Webhook event {} dead-lettered after {} attempts", event.getEventId(),
+                                event.getRetryCount());
+                    } else {
+                        long delayMs = retryDelayMs(event.getRetryCount());
+                        event.setNextAttemptAt(LocalDateTime.now().plusNanos(delayMs * 1_000_000L));
+                        retriesScheduled.increment();
+                        log.warn("Webhook event {} failed (attempt {}/{}), retrying in {} ms", event.getEventId(),
+                                event.getRetryCount(), maxAttempts, delayMs);
+                    }
+                    webhookEventRepository.save(event);
+                }));
+    }
+
+    /**
+     * Exponential backoff with equal jitter: the delay doubles per attempt
+     * up to max-delay-ms, and a random half of it is dropped so events that
+     * failed together do not all come back at the same moment.
+     */
+    long retryDelayMs(int attempt) {
+        long delay = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        lanes.shutdown(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Insert the event log row unless this event ID was already received.
+     *
+     * @return id of the new row, or null if this event ID was already received
+     */
+    private Long recordEvent(WebhookEnvelope envelope, String payload, LocalDateTime nextAttemptAt) {
+        WebhookPayloadCodec.Encoded stored = payloadCodec.encode(payload);
+
+        // Idempotency check and insert in one statement (ON CONFLICT on event_id)
+        List<Long> inserted = webhookEventRepository.insertIfAbsent(envelope.eventId(), envelope.eventType(),
+                envelope.resourceType(), envelope.resourceId(), stored.text(), stored.gzip(), stored.jsonb(),
+                LocalDateTime.now(), nextAttemptAt);
+        if (inserted.isEmpty()) {
+            log.info("Webhook event already processed: {}", envelope.eventId());
+            return null;
+        }
+        return inserted.get(0);
+    }
+
+    private WebhookEvent buildEvent(WebhookEnvelope envelope, String payload, LocalDateTime nextAttemptAt) {
+        WebhookEvent event = WebhookEvent.builder()
+                .eventId(envelope.eventId())
+                .eventType(envelope.eventType())
+                .resourceType(envelope.resourceType())
+                .resourceId(envelope.resourceId())
+                .receivedAt(LocalDateTime.now())
+                .nextAttemptAt(nextAttemptAt)
+                .build();
+        payloadCodec.store(event, payload);
+        return event;
+    }
+
+    private void markProcessed(WebhookEvent event) {
+        event.setProcessed(true);
+        event.setProcessedAt(LocalDateTime.now());
+        event.setNextAttemptAt(null);
+        event.setErrorMessage(null);
+        webhookEventRepository.save(event);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
         }
+        return value.substring(0, maxLength);
+    }
+
+    /**
+     * Apply an event to payment/subscription state.
+     *
+     * Each handler is one UPDATE keyed on an indexed PayPal ID, guarded so
+     * that status only moves forward; repeated events change nothing.
+     *
+     * When the UPDATE matches no row, the target is checked: if it is
+     * already at or past the event's state the event is done, but if it is
+     * missing or not yet in the state the event applies to (a REFUNDED
+     * event that overtook its COMPLETED event) the handler throws, so the
+     * event is retried with backoff instead of being marked processed.
+     *
+     * @return idempotency keys of payments whose state changed
+     */
+    private List<String> handleEvent(String eventType, JsonNode resource) {
+        return switch (eventType) {
+            case "PAYMENT.CAPTURE.COMPLETED" -> handlePaymentCaptureCompleted(resource);
+            case "PAYMENT.CAPTURE.REFUNDED" -> handlePaymentCaptureRefunded(resource);
+            case "PAYMENT.AUTHORIZATION.VOIDED" -> handleAuthorizationVoided(resource);
+            case "BILLING.SUBSCRIPTION.ACTIVATED" -> handleSubscriptionActivated(resource);
+            case "BILLING.SUBSCRIPTION.CANCELLED" -> handleSubscriptionCancelled(resource);
+            default -> {
+                log.info("Unhandled webhook event type: {}", eventType);
+                yield List.of();
+            }
+        };
     }
 
-    private void handlePaymentCaptureCompleted(JsonNode resource) {
+    private List<String> handlePaymentCaptureCompleted(JsonNode resource) {
         String captureId = resource.path("id").asText();
-        String amount = resource.path("amount").path("total").asText();
-        log.info("Payment captured via webhook: id={}, amount={}", captureId, amount);
-        // Logic to update payment status in DB if not already updated
+        String paypalPaymentId = resource.path("parent_payment").asText("");
+        BigDecimal amount = decimal(resource.path("amount").path("total"));
+        // Sales have no is_final_capture and always complete the payment
+        boolean finalCapture = resource.path("is_final_capture").asBoolean(true);
+
+        List<String> changed = paymentRepository.applyCaptureCompleted(captureId, paypalPaymentId, amount,
+                finalCapture);
+        if (changed.isEmpty()) {
+            // Every status the capture applies to matches the UPDATE, so an
+            // idle payment is already captured or closed
+            var payment = paymentRepository.findByPaypalCaptureId(captureId)
+                    .or(() -> paymentRepository.findByPaypalPaymentId(paypalPaymentId))
+                    .orElseThrow(() -> notYetApplicable("capture " + captureId, "no payment found"));
+            requireIdle(payment, "capture " + captureId);
+            log.info("Capture {} already applied to payment id={} (status {})", captureId, payment.getId(),
+                    payment.getStatus());
+        }
+        log.info("Payment captured via webhook: id={}, amount={}, updated={}", captureId, amount, changed.size());
+        return changed;
     }
 
-    private void handlePaymentCaptureRefunded(JsonNode resource) {
+    private List<String> handlePaymentCaptureRefunded(JsonNode resource) {
         String refundId = resource.path("id").asText();
-        String captureId = resource.path("capture_id").asText();
-        log.info("Payment refunded via webhook: refundId={}, captureId={}", refundId, captureId);
-        // Logic to update payment status
+        String captureId = resource.path("capture_id").asText(resource.path("sale_id").asText(""));
+        // PayPal's running total for the capture; a single refund's amount
+        // is only a lower bound when the total is missing
+        BigDecimal totalRefunded = resource.hasNonNull("total_refunded_amount")
+                ? decimal(resource.path("total_refunded_amount").path("value"))
+                : decimal(resource.path("amount").path("total"));
+
+        List<String> changed = paymentRepository.applyCaptureRefunded(captureId, totalRefunded);
+        if (changed.isEmpty()) {
+            var payment = paymentRepository.findByPaypalCaptureId(captureId)
+                    .orElseThrow(() -> notYetApplicable("refund " + refundId, "capture " + captureId
+                            + " not recorded yet"));
+            requireIdle(payment, "refund " + refundId);
+            switch (payment.getStatus()) {
+                case CREATED, PENDING, APPROVED, AUTHORIZED -> throw notYetApplicable("refund " + refundId,
+                        "payment id=" + payment.getId() + " is still " + payment.getStatus());
+                default -> log.info("Refund {} already applied to payment id={} (status {}, refunded {})",
+                        refundId, payment.getId(), payment.getStatus(), payment.getRefundedAmount());
+            }
+        }
+        log.info("Payment refunded via webhook: refundId={}, captureId={}, updated={}",
+                refundId, captureId, changed.size());
+        return changed;
     }
 
-    private void handleAuthorizationVoided(JsonNode resource) {
+    private List<String> handleAuthorizationVoided(JsonNode resource) {
         String authId = resource.path("id").asText();
-        log.info("Authorization voided via webhook: id={}", authId);
-        // Logic to update payment status
+        List<String> changed = paymentRepository.applyAuthorizationVoided(authId);
+        if (changed.isEmpty()) {
+            var payment = paymentRepository.findByPaypalAuthorizationId(authId)
+                    .orElseThrow(() -> notYetApplicable("void of " + authId, "no payment found"));
+            requireIdle(payment, "void of " + authId);
+            log.info("Void of {} already applied to payment id={} (status {})", authId, payment.getId(),
+                    payment.getStatus());
+        }
+        log.info("Authorization voided via webhook: id={}, updated={}", authId, changed.size());
+        return changed;
     }
 
-    private void handleSubscriptionActivated(JsonNode resource) {
+    private List<String> handleSubscriptionActivated(JsonNode resource) {
         String subId = resource.path("id").asText();
-        log.info("Subscription activated: id={}", subId);
-        // Logic to activate subscription
+        int updated = subscriptionRepository.applyActivated(subId,
+                date(resource.path("start_time")),
+                date(resource.path("billing_info").path("next_billing_time")),
+                LocalDateTime.now());
+        if (updated == 0 && subscriptionRepository.findByPaypalSubscriptionId(subId).isEmpty()) {
+            throw notYetApplicable("activation of " + subId, "no subscription found");
+        }
+        log.info("Subscription activated: id={}, updated={}", subId, updated);
+        return List.of();
     }
 
-    private void handleSubscriptionCancelled(JsonNode resource) {
+    private List<String> handleSubscriptionCancelled(JsonNode resource) {
         String subId = resource.path("id").asText();
-        log.info("Subscription cancelled: id={}", subId);
-        // Logic to cancel subscription
+        int updated = subscriptionRepository.applyCancelled(subId, LocalDateTime.now());
+        if (updated == 0 && subscriptionRepository.findByPaypalSubscriptionId(subId).isEmpty()) {
+            throw notYetApplicable("cancellation of " + subId, "no subscription found");
+        }
+        log.info("Subscription cancelled: id={}, updated={}", subId, updated);
+        return List.of();
+    }
+
+    /**
+     * A payment with a PayPal call in flight is skipped by the webhook
+     * UPDATEs; the event is retried once the API flow has applied its
+     * result, so the two never add the same amount twice.
+     */
+    private static void requireIdle(Payment payment, String what) {
+        if (payment.getPendingOperation() != null) {
+            throw notYetApplicable(what, "payment id=" + payment.getId() + " has a "
+                    + payment.getPendingOperation() + " in progress");
+        }
+    }
+
+    /**
+     * The event cannot be applied yet; thrown so it is retried later.
+     */
+    private static PaymentException notYetApplicable(String what, String reason) {
+        return new PaymentException("Cannot apply " + what + " yet: " + reason);
+    }
+
+    private static BigDecimal decimal(JsonNode node) {
+        String text = node.asText("");
+        return text.isEmpty() ? BigDecimal.ZERO : new BigDecimal(text);
+    }
+
+    private static LocalDate date(JsonNode node) {
+        String text = node.asText("");
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(text).toLocalDate();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,8 @@
+-- ============================================================
+-- Index for the authorization expiry sweep
+-- Purpose: AuthorizationExpirySweeper looks up AUTHORIZED
+-- payments older than a cutoff, oldest first. With status
+-- leading, the sweep reads only the AUTHORIZED slice in
+-- created_at order instead of scanning all payments.
+-- ============================================================
+CREATE INDEX idx_payments_status_created ON payments(status, created_at, id);
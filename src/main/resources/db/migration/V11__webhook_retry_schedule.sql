@@ -0,0 +1,24 @@
+-- ============================================================
+-- Webhook retry schedule
+-- Purpose: Failed webhook events are retried with exponential
+-- backoff instead of being dropped or retried in a tight loop.
+--
+-- next_attempt_at: when the event is next due. A worker claims
+--   due rows with FOR UPDATE SKIP LOCKED and pushes
+--   next_attempt_at forward while it processes them, so other
+--   workers and nodes skip them.
+-- dead_letter: set once retries are exhausted; such events are
+--   kept for inspection but never claimed again.
+-- ============================================================
+ALTER TABLE webhook_events ADD COLUMN next_attempt_at TIMESTAMP;
+ALTER TABLE webhook_events ADD COLUMN dead_letter BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Existing unprocessed events: due now, unless they already used up
+-- the previous retry limit (webhook.ingestion.max-attempts, default 5)
+UPDATE webhook_events SET dead_letter = TRUE
+    WHERE processed = FALSE AND retry_count >= 5;
+UPDATE webhook_events SET next_attempt_at = COALESCE(received_at, CURRENT_TIMESTAMP)
+    WHERE processed = FALSE AND dead_letter = FALSE;
+
+CREATE INDEX idx_webhook_events_due ON webhook_events(next_attempt_at, id)
+    WHERE processed = FALSE AND dead_letter = FALSE;
@@ -0,0 +1,18 @@
+-- ============================================================
+-- Webhook payload storage modes
+-- Purpose: webhook_events.payload (plain TEXT) dominates table and
+-- WAL size. New events can instead be stored compressed or as
+-- JSONB, selected by webhook.payload.storage:
+--
+-- payload_gzip:  gzip-compressed UTF-8 payload (storage: gzip)
+-- payload_jsonb: parsed payload, queryable with ->/->> (storage: jsonb)
+--
+-- Each row uses exactly one of payload, payload_gzip and
+-- payload_jsonb. Existing rows keep their TEXT payload and stay
+-- readable whatever the current mode is.
+-- ============================================================
+ALTER TABLE webhook_events ADD COLUMN payload_gzip BYTEA;
+ALTER TABLE webhook_events ADD COLUMN payload_jsonb JSONB;
+
+-- Already compressed; skip TOAST's own compression attempt
+ALTER TABLE webhook_events ALTER COLUMN payload_gzip SET STORAGE EXTERNAL;
@@ -0,0 +1,109 @@
+-- ============================================================
+-- Monthly partitioning of webhook_events
+-- Purpose: webhook_events only ever grows. As one heap table,
+-- every vacuum and index maintenance pass covers all history.
+-- Range partitions by month on received_at let old months be
+-- exported and dropped (WebhookArchiveJob) instead of deleted
+-- row by row, and keep the hot partial index (idx_webhook_events_due)
+-- small: old partitions hold no unprocessed rows.
+--
+-- webhook_event_keys: a unique index on a partitioned table must
+--   include the partition key, so event_id can no longer be unique
+--   on webhook_events itself. The dedup check moves to this narrow
+--   table (event_id PRIMARY KEY), which the insert of a new event
+--   goes through with ON CONFLICT DO NOTHING.
+--
+-- payments is deliberately not partitioned: its unique keys
+-- (idempotency_key, PayPal IDs) and the foreign key from
+-- payment_items would all have to include created_at, and
+-- its hot lookups (by id, PayPal ID or idempotency key, e.g. a
+-- refund months after the sale) carry no date, so they would probe
+-- every partition. Its growth is handled by the (status,
+-- created_at) and lookup indexes instead.
+--
+-- Partitions are created from the oldest stored month to 3 months
+-- ahead; WebhookArchiveJob keeps creating future months. The
+-- DEFAULT partition only catches rows if that job stops running.
+-- ============================================================
+
+-- Keep the id sequence when the old table is dropped
+ALTER SEQUENCE webhook_events_seq OWNED BY NONE;
+
+ALTER TABLE webhook_events RENAME TO webhook_events_unpartitioned;
+
+CREATE TABLE webhook_events (
+    id BIGINT NOT NULL DEFAULT nextval('webhook_events_seq'),
+
+    -- PayPal webhook data
+    event_id VARCHAR(100) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    resource_type VARCHAR(50),
+    resource_id VARCHAR(100),
+
+    -- Full webhook payload, in one of the storage forms
+    payload TEXT,
+    payload_gzip BYTEA,
+    payload_jsonb JSONB,
+
+    -- Processing status
+    processed BOOLEAN DEFAULT FALSE,
+    processed_at TIMESTAMP,
+    error_message VARCHAR(1000),
+    retry_count INT DEFAULT 0,
+    next_attempt_at TIMESTAMP,
+    dead_letter BOOLEAN NOT NULL DEFAULT FALSE,
+
+    -- Timestamps (partition key)
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT pk_webhook_events PRIMARY KEY (id, received_at)
+) PARTITION BY RANGE (received_at);
+
+-- Already compressed; skip TOAST's own compression attempt
+ALTER TABLE webhook_events ALTER COLUMN payload_gzip SET STORAGE EXTERNAL;
+
+DO $$
+DECLARE
+    part_month DATE := date_trunc('month',
+            LEAST(COALESCE((SELECT MIN(received_at) FROM webhook_events_unpartitioned), now()), now()))::date;
+    last_month DATE := (date_trunc('month', now()) + INTERVAL '3 months')::date;
+BEGIN
+    WHILE part_month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF webhook_events FOR VALUES FROM (%L) TO (%L)',
+                'webhook_events_' || to_char(part_month, 'YYYY_MM'),
+                part_month, (part_month + INTERVAL '1 month')::date);
+        part_month := (part_month + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE TABLE webhook_events_default PARTITION OF webhook_events DEFAULT;
+
+INSERT INTO webhook_events (id, event_id, event_type, resource_type, resource_id, payload, payload_gzip,
+        payload_jsonb, processed, processed_at, error_message, retry_count, next_attempt_at, dead_letter,
+        received_at)
+SELECT id, event_id, event_type, resource_type, resource_id, payload, payload_gzip,
+        payload_jsonb, processed, processed_at, error_message, retry_count, next_attempt_at, dead_letter,
+        COALESCE(received_at, CURRENT_TIMESTAMP)
+FROM webhook_events_unpartitioned;
+
+CREATE TABLE webhook_event_keys (
+    event_id VARCHAR(100) PRIMARY KEY,
+    received_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO webhook_event_keys (event_id, received_at)
+SELECT event_id, received_at FROM webhook_events;
+
+DROP TABLE webhook_events_unpartitioned;
+
+ALTER SEQUENCE webhook_events_seq OWNED BY webhook_events.id;
+
+-- Indexes (created on every partition)
+CREATE INDEX idx_webhook_events_event_id ON webhook_events(event_id);
+CREATE INDEX idx_webhook_events_type ON webhook_events(event_type);
+CREATE INDEX idx_webhook_events_processed ON webhook_events(processed);
+CREATE INDEX idx_webhook_events_due ON webhook_events(next_attempt_at, id)
+    WHERE processed = FALSE AND dead_letter = FALSE;
+
+-- Archival removes the keys of exported months
+CREATE INDEX idx_webhook_event_keys_received ON webhook_event_keys(received_at);
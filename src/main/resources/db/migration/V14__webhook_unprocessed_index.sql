@@ -0,0 +1,15 @@
+-- ============================================================
+-- Partial index for the unprocessed webhook backlog
+-- Purpose: idx_webhook_events_processed indexed a boolean that
+-- is TRUE for nearly every row, so it was large and useless for
+-- finding the few unprocessed events. The partial index holds
+-- only unprocessed rows (including dead-lettered ones) in
+-- received_at order, so listing the backlog oldest first reads
+-- as many index entries as there are backlog rows, whatever the
+-- size of the table. It stays small because rows leave it when
+-- they are processed.
+-- ============================================================
+DROP INDEX idx_webhook_events_processed;
+
+CREATE INDEX idx_webhook_events_unprocessed ON webhook_events(received_at, id)
+    WHERE processed = FALSE;
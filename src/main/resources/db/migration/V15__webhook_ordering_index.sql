@@ -0,0 +1,13 @@
+-- ============================================================
+-- Ordering-key index for webhook claims
+-- Purpose: claimDue only hands out an event when no older
+-- unprocessed, non-dead-lettered event exists for the same
+-- resource (ordering key: resource ID, else event ID), so a
+-- failed event waiting for its retry is not overtaken by later
+-- events of that resource. This partial index on the ordering key
+-- answers that NOT EXISTS probe per candidate without scanning
+-- the backlog. Its expression must match the query's exactly.
+-- ============================================================
+CREATE INDEX idx_webhook_events_ordering
+    ON webhook_events ((COALESCE(NULLIF(resource_id, ''), event_id)), received_at, id)
+    WHERE processed = FALSE AND dead_letter = FALSE;
@@ -0,0 +1,28 @@
+-- ============================================================
+-- Capture ledger
+-- Purpose: a payment can be captured in several partial captures,
+-- and each capture is reported by the API response, by a
+-- PAYMENT.CAPTURE.COMPLETED webhook, and by recovery. One row per
+-- PayPal capture ID makes adding a capture to captured_amount
+-- idempotent: whichever path records a capture first adds its
+-- amount, and the others find the row and add nothing. Partial
+-- captures are summed instead of the largest one winning.
+--
+-- Existing payments get one row for their last known capture.
+-- ============================================================
+CREATE TABLE payment_captures (
+    capture_id VARCHAR(100) PRIMARY KEY,
+    payment_id BIGINT NOT NULL,
+    amount DECIMAL(10, 2) NOT NULL,
+    captured_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_payment_captures_payment FOREIGN KEY (payment_id) REFERENCES payments(id)
+);
+
+CREATE INDEX idx_payment_captures_payment ON payment_captures(payment_id);
+
+INSERT INTO payment_captures (capture_id, payment_id, amount, captured_at)
+SELECT paypal_capture_id, id, captured_amount, COALESCE(completed_at, updated_at, created_at, CURRENT_TIMESTAMP)
+FROM payments
+WHERE paypal_capture_id IS NOT NULL AND captured_amount > 0
+ON CONFLICT (capture_id) DO NOTHING;
@@ -0,0 +1,9 @@
+-- ============================================================
+-- Indexes for capture and refund lookups
+-- Purpose: PaymentService resolves payments by PayPal
+-- authorization ID (capture flow) and capture/sale ID
+-- (refund flow). Without these, each lookup is a full scan
+-- of the payments table.
+-- ============================================================
+CREATE INDEX idx_payments_paypal_authorization_id ON payments(paypal_authorization_id);
+CREATE INDEX idx_payments_paypal_capture_id ON payments(paypal_capture_id);
@@ -0,0 +1,35 @@
+-- ============================================================
+-- Sequence-based primary keys
+-- Purpose: IDENTITY columns force Hibernate to execute each
+-- INSERT immediately to learn the generated id, which disables
+-- JDBC batching. Sequences with INCREMENT BY 50 match the
+-- entities' allocationSize so Hibernate's pooled optimizer
+-- hands out 50 ids per nextval() and inserts can be batched.
+--
+-- Each sequence is positioned past the current MAX(id). The
+-- column default keeps plain SQL inserts working.
+-- ============================================================
+
+-- orders
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE orders_seq START WITH 1 INCREMENT BY 50 OWNED BY orders.id;
+SELECT setval('orders_seq', COALESCE(MAX(id), 0) + 50, false) FROM orders;
+ALTER TABLE orders ALTER COLUMN id SET DEFAULT nextval('orders_seq');
+
+-- payments
+ALTER TABLE payments ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE payments_seq START WITH 1 INCREMENT BY 50 OWNED BY payments.id;
+SELECT setval('payments_seq', COALESCE(MAX(id), 0) + 50, false) FROM payments;
+ALTER TABLE payments ALTER COLUMN id SET DEFAULT nextval('payments_seq');
+
+-- subscriptions
+ALTER TABLE subscriptions ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE subscriptions_seq START WITH 1 INCREMENT BY 50 OWNED BY subscriptions.id;
+SELECT setval('subscriptions_seq', COALESCE(MAX(id), 0) + 50, false) FROM subscriptions;
+ALTER TABLE subscriptions ALTER COLUMN id SET DEFAULT nextval('subscriptions_seq');
+
+-- webhook_events
+ALTER TABLE webhook_events ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE webhook_events_seq START WITH 1 INCREMENT BY 50 OWNED BY webhook_events.id;
+SELECT setval('webhook_events_seq', COALESCE(MAX(id), 0) + 50, false) FROM webhook_events;
+ALTER TABLE webhook_events ALTER COLUMN id SET DEFAULT nextval('webhook_events_seq');
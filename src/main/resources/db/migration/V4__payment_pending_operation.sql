@@ -0,0 +1,13 @@
+-- ============================================================
+-- Pending PayPal operation marker on payments
+-- Purpose: PaymentService records which PayPal call it is about
+-- to make in a short transaction, makes the call without holding
+-- a DB connection, then applies the result in a second short
+-- transaction. A row left with pending_operation set after a
+-- crash is picked up by PaymentRecoveryJob.
+-- ============================================================
+ALTER TABLE payments ADD COLUMN pending_operation VARCHAR(20);
+ALTER TABLE payments ADD COLUMN pending_since TIMESTAMP;
+
+CREATE INDEX idx_payments_pending_operation ON payments(pending_since)
+    WHERE pending_operation IS NOT NULL;
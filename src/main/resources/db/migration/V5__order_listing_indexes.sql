@@ -0,0 +1,13 @@
+-- ============================================================
+-- Indexes for the order listing API
+-- Purpose: GET /api/orders pages newest-first by (created_at, id)
+-- with optional status / customer email filters. Each index
+-- serves the keyset predicate and the ORDER BY directly, so a
+-- page is a short index range scan at any depth.
+-- ============================================================
+CREATE INDEX idx_orders_created_id ON orders(created_at DESC, id DESC);
+CREATE INDEX idx_orders_status_created_id ON orders(status, created_at DESC, id DESC);
+CREATE INDEX idx_orders_customer_created_id ON orders(customer_email, created_at DESC, id DESC);
+
+-- Payments are loaded per page of orders when includePayments=true
+CREATE INDEX idx_payments_order_id ON payments(order_id);
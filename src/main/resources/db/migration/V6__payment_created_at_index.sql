@@ -0,0 +1,7 @@
+-- ============================================================
+-- Index for the payment export
+-- Purpose: GET /api/payments/export streams payments in a
+-- created_at range ordered by (created_at, id). The index lets
+-- the cursor walk the range in order without a sort step.
+-- ============================================================
+CREATE INDEX idx_payments_created_id ON payments(created_at, id);
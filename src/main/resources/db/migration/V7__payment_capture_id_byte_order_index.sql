@@ -0,0 +1,10 @@
+-- ============================================================
+-- Byte-ordered capture ID index for reconciliation
+-- Purpose: the reconciliation job merges the (sorted) PayPal
+-- settlement report with payments streamed in capture ID
+-- order. It sorts with COLLATE "C" so the database order
+-- matches Java string order; this index provides that order
+-- without a sort of the whole payments table.
+-- ============================================================
+CREATE INDEX idx_payments_paypal_capture_id_c ON payments(paypal_capture_id COLLATE "C")
+    WHERE paypal_capture_id IS NOT NULL;
@@ -0,0 +1,44 @@
+-- ============================================================
+-- Subscription billing
+-- Purpose: SubscriptionBillingJob scans active subscriptions
+-- due for billing in (next_billing_date, id) keyset batches and
+-- charges each one.
+--
+-- subscription_charges has one row per subscription and billing
+-- date. The unique key is the reservation that makes billing
+-- safe to rerun: a restart finds the existing row (and its
+-- PayPal request id) instead of charging again.
+-- ============================================================
+CREATE INDEX idx_subscriptions_due ON subscriptions(next_billing_date, id)
+    WHERE status = 'ACTIVE';
+
+CREATE SEQUENCE subscription_charges_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE subscription_charges (
+    id BIGINT PRIMARY KEY DEFAULT nextval('subscription_charges_seq'),
+    subscription_id BIGINT NOT NULL,
+    billing_date DATE NOT NULL,
+
+    amount DECIMAL(10, 2) NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+
+    -- Status: PENDING, COMPLETED, FAILED
+    status VARCHAR(20) NOT NULL,
+
+    -- Sent as PayPal-Request-Id; PayPal replays the original result
+    -- for a repeated id instead of charging twice
+    request_id VARCHAR(100) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+
+    paypal_payment_id VARCHAR(100),
+    paypal_sale_id VARCHAR(100),
+    error_message VARCHAR(1000),
+
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_charge_subscription FOREIGN KEY (subscription_id) REFERENCES subscriptions(id),
+    CONSTRAINT uq_charge_subscription_date UNIQUE (subscription_id, billing_date)
+);
+
+ALTER SEQUENCE subscription_charges_seq OWNED BY subscription_charges.id;
@@ -0,0 +1,26 @@
+-- ============================================================
+-- Cluster shard leases
+-- Purpose: Spread background jobs (billing, webhook retries,
+-- recovery sweeps) across instances without duplicate work.
+--
+-- cluster_nodes: one row per live instance, refreshed by its
+-- heartbeat. Rows older than the node TTL are removed by any node.
+--
+-- shard_leases: background work is split into a fixed number of
+-- shards (hash/mod of the row's key). Each shard is leased to at
+-- most one node at a time; the lease is renewed on every heartbeat
+-- and lapses on its own if the node dies.
+-- ============================================================
+CREATE TABLE cluster_nodes (
+    node_id VARCHAR(100) PRIMARY KEY,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE shard_leases (
+    shard INT PRIMARY KEY,
+    owner_node VARCHAR(100),
+    lease_until TIMESTAMP
+);
+
+CREATE INDEX idx_shard_leases_owner ON shard_leases(owner_node);
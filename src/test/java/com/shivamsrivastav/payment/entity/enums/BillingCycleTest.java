@@ -0,0 +1,99 @@
+package com.shivamsrivastav.payment.entity.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link BillingCycle#next(LocalDate, LocalDate, int)}.
+ *
+ * @author Shivam Srivastav
+ */
+class BillingCycleTest {
+
+    @Test
+    void monthlyReturnsToMonthEndAfterShortMonth() {
+        LocalDate anchor = LocalDate.of(2024, 1, 31);
+
+        assertEquals(List.of(
+                LocalDate.of(2024, 2, 29),
+                LocalDate.of(2024, 3, 31),
+                LocalDate.of(2024, 4, 30),
+                LocalDate.of(2024, 5, 31)),
+                schedule(BillingCycle.MONTHLY, anchor, 1, 4));
+    }
+
+    @Test
+    void monthlyOnNonLeapYear() {
+        LocalDate anchor = LocalDate.of(2023, 1, 31);
+
+        assertEquals(LocalDate.of(2023, 2, 28), BillingCycle.MONTHLY.next(anchor, anchor, 1));
+        assertEquals(LocalDate.of(2023, 3, 31),
+                BillingCycle.MONTHLY.next(anchor, LocalDate.of(2023, 2, 28), 1));
+    }
+
+    @Test
+    void quarterlyKeepsAnchorDay() {
+        LocalDate anchor = LocalDate.of(2024, 11, 30);
+
+        assertEquals(List.of(
+                LocalDate.of(2025, 2, 28),
+                LocalDate.of(2025, 5, 30),
+                LocalDate.of(2025, 8, 30)),
+                schedule(BillingCycle.QUARTERLY, anchor, 1, 3));
+    }
+
+    @Test
+    void yearlyReturnsToLeapDay() {
+        LocalDate anchor = LocalDate.of(2024, 2, 29);
+
+        assertEquals(List.of(
+                LocalDate.of(2025, 2, 28),
+                LocalDate.of(2026, 2, 28),
+                LocalDate.of(2027, 2, 28),
+                LocalDate.of(2028, 2, 29)),
+                schedule(BillingCycle.YEARLY, anchor, 1, 4));
+    }
+
+    @Test
+    void intervalMultipliesTheCycle() {
+        LocalDate anchor = LocalDate.of(2024, 1, 31);
+
+        assertEquals(List.of(
+                LocalDate.of(2024, 3, 31),
+                LocalDate.of(2024, 5, 31)),
+                schedule(BillingCycle.MONTHLY, anchor, 2, 2));
+    }
+
+    @Test
+    void missingOrFutureAnchorCountsFromDate() {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+
+        assertEquals(LocalDate.of(2024, 2, 15), BillingCycle.MONTHLY.next(null, date, 1));
+        assertEquals(LocalDate.of(2024, 2, 15),
+                BillingCycle.MONTHLY.next(LocalDate.of(2024, 6, 1), date, 1));
+    }
+
+    @Test
+    void dayAndWeekCyclesAddFromDate() {
+        LocalDate anchor = LocalDate.of(2024, 1, 31);
+        LocalDate date = LocalDate.of(2024, 2, 29);
+
+        assertEquals(LocalDate.of(2024, 3, 2), BillingCycle.DAILY.next(anchor, date, 2));
+        assertEquals(LocalDate.of(2024, 3, 7), BillingCycle.WEEKLY.next(anchor, date, 1));
+    }
+
+    private static List<LocalDate> schedule(BillingCycle cycle, LocalDate anchor, int interval, int count) {
+        List<LocalDate> dates = new ArrayList<>();
+        LocalDate date = anchor;
+        for (int i = 0; i < count; i++) {
+            date = cycle.next(anchor, date, interval);
+            dates.add(date);
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,60 @@
+package com.shivamsrivastav.payment.money;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link MoneyJsonComponent}: Money is written and read as a
+ * PayPal money object without passing through a double.
+ *
+ * @author Shivam Srivastav
+ */
+class MoneyJsonComponentTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new SimpleModule()
+            .addSerializer(Money.class, new MoneyJsonComponent.Serializer())
+            .addDeserializer(Money.class, new MoneyJsonComponent.Deserializer()));
+
+    @Test
+    void writesPayPalMoneyObject() throws Exception {
+        assertEquals("{\"value\":\"10.50\",\"currency_code\":\"USD\"}",
+                objectMapper.writeValueAsString(Money.ofMinor(1050, "USD")));
+        assertEquals("{\"value\":\"1050\",\"currency_code\":\"JPY\"}",
+                objectMapper.writeValueAsString(Money.ofMinor(1050, "JPY")));
+    }
+
+    @Test
+    void roundTrips() throws Exception {
+        Money money = Money.of(new BigDecimal("0.30"), "EUR");
+
+        assertEquals(money, objectMapper.readValue(objectMapper.writeValueAsString(money), Money.class));
+    }
+
+    @Test
+    void readsNumericValue() throws Exception {
+        assertEquals(Money.ofMinor(1050, "USD"),
+                objectMapper.readValue("{\"value\":10.5,\"currency_code\":\"USD\"}", Money.class));
+    }
+
+    @Test
+    void rejectsMalformedMoney() {
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"value\":\"ten\",\"currency_code\":\"USD\"}", Money.class));
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"value\":\"10.50\"}", Money.class));
+    }
+
+    @Test
+    void rejectsTooManyDecimals() {
+        assertThrows(PaymentException.class,
+                () -> objectMapper.readValue("{\"value\":\"10.5\",\"currency_code\":\"JPY\"}", Money.class));
+    }
+}
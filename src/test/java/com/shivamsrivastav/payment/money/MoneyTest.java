@@ -0,0 +1,154 @@
+package com.shivamsrivastav.payment.money;
+
+import com.shivamsrivastav.payment.exception.PaymentException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Money}: currency exponents, exact conversion,
+ * overflow-checked arithmetic and formatting for PayPal.
+ *
+ * @author Shivam Srivastav
+ */
+class MoneyTest {
+
+    // ==================== Exponents ====================
+
+    @Test
+    void exponentFollowsTheCurrency() {
+        assertEquals(2, Money.exponent("USD"));
+        assertEquals(2, Money.exponent("EUR"));
+        assertEquals(0, Money.exponent("JPY"));
+        assertEquals(3, Money.exponent("KWD"));
+    }
+
+    @Test
+    void payPalZeroDecimalCurrenciesOverrideIso() {
+        assertEquals(0, Money.exponent("HUF"));
+        assertEquals(0, Money.exponent("TWD"));
+    }
+
+    @Test
+    void unknownOrMissingCurrencyIsRejected() {
+        assertThrows(PaymentException.class, () -> Money.exponent("XYZ"));
+        assertThrows(PaymentException.class, () -> Money.exponent(null));
+        assertThrows(PaymentException.class, () -> Money.of(new BigDecimal("1.00"), "usd"));
+    }
+
+    // ==================== Conversion ====================
+
+    @Test
+    void exactConversionToMinorUnits() {
+        assertEquals(1050, Money.of(new BigDecimal("10.50"), "USD").minorUnits());
+        assertEquals(1050, Money.of(new BigDecimal("10.5"), "USD").minorUnits());
+        assertEquals(1050, Money.of(new BigDecimal("1050"), "JPY").minorUnits());
+        assertEquals(10_500, Money.of(new BigDecimal("10.5"), "KWD").minorUnits());
+    }
+
+    @Test
+    void trailingZerosBeyondTheExponentAreAccepted() {
+        // DECIMAL(10,2) columns return JPY amounts as 1050.00
+        assertEquals(Money.ofMinor(1050, "JPY"), Money.of(new BigDecimal("1050.00"), "JPY"));
+        assertEquals(Money.ofMinor(1050, "USD"), Money.of(new BigDecimal("10.5000"), "USD"));
+    }
+
+    @Test
+    void moreDecimalsThanTheCurrencyAllowsAreRejected() {
+        assertThrows(PaymentException.class, () -> Money.of(new BigDecimal("10.001"), "USD"));
+        assertThrows(PaymentException.class, () -> Money.of(new BigDecimal("10.5"), "JPY"));
+        assertThrows(PaymentException.class, () -> Money.of(new BigDecimal("1000.5"), "HUF"));
+        assertThrows(PaymentException.class, () -> Money.of(new BigDecimal("1.0005"), "KWD"));
+    }
+
+    @Test
+    void amountsBeyondLongRangeAreRejected() {
+        assertThrows(PaymentException.class, () -> Money.of(new BigDecimal("92233720368547758.08"), "USD"));
+    }
+
+    @Test
+    void roundedConversionRoundsHalfUp() {
+        assertEquals(1001, Money.rounded(new BigDecimal("10.005"), "USD").minorUnits());
+        assertEquals(1000, Money.rounded(new BigDecimal("10.004"), "USD").minorUnits());
+        assertEquals(11, Money.rounded(new BigDecimal("10.5"), "JPY").minorUnits());
+    }
+
+    @Test
+    void toBigDecimalUsesTheCurrencyScale() {
+        assertEquals(new BigDecimal("10.50"), Money.ofMinor(1050, "USD").toBigDecimal());
+        assertEquals(new BigDecimal("1050"), Money.ofMinor(1050, "JPY").toBigDecimal());
+        assertEquals(new BigDecimal("1.050"), Money.ofMinor(1050, "KWD").toBigDecimal());
+    }
+
+    @Test
+    void plainStringHasExactlyTheCurrencyDecimals() {
+        assertEquals("10.50", Money.ofMinor(1050, "USD").toPlainString());
+        assertEquals("0.05", Money.ofMinor(5, "USD").toPlainString());
+        assertEquals("-0.05", Money.ofMinor(-5, "USD").toPlainString());
+        assertEquals("-12.30", Money.ofMinor(-1230, "EUR").toPlainString());
+        assertEquals("1050", Money.ofMinor(1050, "JPY").toPlainString());
+        assertEquals("0.007", Money.ofMinor(7, "KWD").toPlainString());
+        assertEquals("10.50 USD", Money.ofMinor(1050, "USD").toString());
+    }
+
+    // ==================== Arithmetic ====================
+
+    @Test
+    void plusAndMinusAreExact() {
+        Money captured = Money.of(new BigDecimal("0.10"), "USD").plus(Money.of(new BigDecimal("0.20"), "USD"));
+
+        assertEquals(Money.of(new BigDecimal("0.30"), "USD"), captured);
+        assertEquals(Money.ofMinor(-5, "USD"), Money.ofMinor(25, "USD").minus(Money.ofMinor(30, "USD")));
+    }
+
+    @Test
+    void plusOverflowThrows() {
+        Money max = Money.ofMinor(Long.MAX_VALUE, "USD");
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1, "USD")));
+    }
+
+    @Test
+    void minusOverflowThrows() {
+        Money min = Money.ofMinor(Long.MIN_VALUE, "USD");
+
+        assertThrows(ArithmeticException.class, () -> min.minus(Money.ofMinor(1, "USD")));
+        assertThrows(ArithmeticException.class,
+                () -> Money.zero("USD").minus(Money.ofMinor(Long.MIN_VALUE, "USD")));
+    }
+
+    @Test
+    void mixingCurrenciesThrows() {
+        Money usd = Money.ofMinor(100, "USD");
+        Money eur = Money.ofMinor(100, "EUR");
+
+        assertThrows(IllegalArgumentException.class, () -> usd.plus(eur));
+        assertThrows(IllegalArgumentException.class, () -> usd.minus(eur));
+        assertThrows(IllegalArgumentException.class, () -> usd.compareTo(eur));
+    }
+
+    @Test
+    void comparisonAndSign() {
+        Money small = Money.ofMinor(100, "USD");
+        Money large = Money.ofMinor(250, "USD");
+
+        assertTrue(small.compareTo(large) < 0);
+        assertEquals(small, large.min(small));
+        assertTrue(Money.zero("USD").isZero());
+        assertTrue(small.isPositive());
+        assertTrue(small.minus(large).isNegative());
+    }
+
+    @Test
+    void equalityIgnoresDecimalRepresentation() {
+        Money a = Money.of(new BigDecimal("10.5"), "USD");
+        Money b = Money.of(new BigDecimal("10.50"), "USD");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+}
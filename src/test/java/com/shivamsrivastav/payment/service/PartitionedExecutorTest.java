@@ -0,0 +1,124 @@
+package com.shivamsrivastav.payment.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link PartitionedExecutor}: per-key ordering, parallelism
+ * across lanes and backpressure on a full lane.
+ *
+ * @author Shivam Srivastav
+ */
+class PartitionedExecutorTest {
+
+    private PartitionedExecutor executor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void tasksWithSameKeyRunInSubmissionOrder() throws InterruptedException {
+        executor = new PartitionedExecutor("test-lane", 4, 2_000);
+        int keys = 20;
+        int tasksPerKey = 50;
+        Map<String, List<Integer>> runs = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+
+        for (int seq = 0; seq < tasksPerKey; seq++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "CAP-" + k;
+                int order = seq;
+                assertTrue(executor.submit(key, System.currentTimeMillis(), () -> {
+                    if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                        Thread.yield();
+                    }
+                    runs.computeIfAbsent(key, x -> Collections.synchronizedList(new ArrayList<>())).add(order);
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        List<Integer> expected = IntStream.range(0, tasksPerKey).boxed().toList();
+        runs.forEach((key, order) -> assertEquals(expected, order, key));
+        assertEquals(keys, runs.size());
+    }
+
+    @Test
+    void differentLanesRunInParallel() throws InterruptedException {
+        executor = new PartitionedExecutor("test-lane", 2, 10);
+        String first = "CAP-A";
+        String second = keyOnOtherLane(first);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch firstDone = new CountDownLatch(1);
+
+        // The first task only finishes if the second runs while it waits
+        executor.submit(first, System.currentTimeMillis(), () -> {
+            try {
+                if (secondStarted.await(5, TimeUnit.SECONDS)) {
+                    firstDone.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.submit(second, System.currentTimeMillis(), secondStarted::countDown);
+
+        assertTrue(firstDone.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void fullLaneRejectsInsteadOfBlocking() throws InterruptedException {
+        executor = new PartitionedExecutor("test-lane", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(executor.submit("CAP-1", System.currentTimeMillis() - 5_000, () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.submit("CAP-1", System.currentTimeMillis(), () -> { }));
+
+        assertFalse(executor.submit("CAP-1", System.currentTimeMillis(), () -> { }));
+        assertEquals(0, executor.remainingCapacity());
+        assertEquals(1, executor.queueDepth(0));
+        assertTrue(executor.lagMillis(0) >= 5_000);
+
+        release.countDown();
+    }
+
+    private String keyOnOtherLane(String key) {
+        int lane = executor.laneFor(key);
+        for (int i = 0; ; i++) {
+            String candidate = "CAP-" + i;
+            if (executor.laneFor(candidate) != lane) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
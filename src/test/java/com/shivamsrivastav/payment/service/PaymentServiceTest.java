@@ -0,0 +1,160 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.dto.request.CreatePaymentRequest;
+import com.shivamsrivastav.payment.dto.response.PaymentResponse;
+import com.shivamsrivastav.payment.entity.Payment;
+import com.shivamsrivastav.payment.entity.enums.PaymentIntent;
+import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+import com.shivamsrivastav.payment.repository.OrderRepository;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrency tests for idempotent payment creation: many requests with
+ * one idempotency key must create exactly one PayPal payment.
+ *
+ * The payments table is simulated by a single slot that rejects a second
+ * idempotency key reservation, like the unique index does.
+ *
+ * @author Shivam Srivastav
+ */
+class PaymentServiceTest {
+
+    private static final int THREADS = 16;
+    private static final String IDEMPOTENCY_KEY = "order-42-attempt-1";
+
+    private PayPalService payPalService;
+    private PaymentRepository paymentRepository;
+    private PlatformTransactionManager transactionManager;
+    private IdempotencyResponseCache responseCache;
+    private final AtomicReference<Payment> stored = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        payPalService = mock(PayPalService.class);
+        paymentRepository = mock(PaymentRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        responseCache = mock(IdempotencyResponseCache.class);
+
+        when(payPalService.createPayment(any())).thenAnswer(invocation -> {
+            // Slow enough that every request arrives while the first is at PayPal
+            Thread.sleep(200);
+            com.paypal.api.payments.Payment created = new com.paypal.api.payments.Payment();
+            created.setId("PAYID-TEST-1");
+            return created;
+        });
+        when(payPalService.getApprovalUrl(any())).thenReturn("https://paypal.test/approve");
+
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setId(1L);
+            if (!stored.compareAndSet(null, payment)) {
+                throw new DataIntegrityViolationException("duplicate key value violates unique constraint");
+            }
+            return payment;
+        });
+        when(paymentRepository.findByIdempotencyKey(IDEMPOTENCY_KEY))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(paymentRepository.findById(anyLong())).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void concurrentCreatesWithOneKeyCallPayPalOnce() throws Exception {
+        PaymentService paymentService = newService();
+
+        List<PaymentResponse> responses = runConcurrently(i -> paymentService.createPayment(request()));
+
+        verify(payPalService, times(1)).createPayment(any());
+        verify(paymentRepository, times(1)).saveAndFlush(any(Payment.class));
+        assertSamePayment(responses);
+    }
+
+    @Test
+    void concurrentCreatesOnSeveralNodesCallPayPalOnce() throws Exception {
+        // Separate instances share no in-flight map; only the reserved row dedups
+        List<PaymentService> nodes = List.of(newService(), newService(), newService(), newService());
+
+        List<PaymentResponse> responses = runConcurrently(
+                i -> nodes.get(i % nodes.size()).createPayment(request()));
+
+        verify(payPalService, times(1)).createPayment(any());
+        assertSamePayment(responses);
+    }
+
+    // ==================== Helpers ====================
+
+    private PaymentService newService() {
+        return new PaymentService(payPalService, paymentRepository, mock(OrderRepository.class),
+                transactionManager, responseCache, 10_000);
+    }
+
+    private static CreatePaymentRequest request() {
+        return CreatePaymentRequest.builder()
+                .amount(new BigDecimal("25.00"))
+                .currency("USD")
+                .description("Concurrency test")
+                .paymentIntent(PaymentIntent.CAPTURE)
+                .idempotencyKey(IDEMPOTENCY_KEY)
+                .build();
+    }
+
+    private interface Call {
+        PaymentResponse run(int index) throws Exception;
+    }
+
+    private static List<PaymentResponse> runConcurrently(Call call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<PaymentResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.run(index);
+                }));
+            }
+            start.countDown();
+
+            List<PaymentResponse> responses = new ArrayList<>();
+            for (Future<PaymentResponse> future : futures) {
+                responses.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return responses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSamePayment(List<PaymentResponse> responses) {
+        assertEquals(THREADS, responses.size());
+        for (PaymentResponse response : responses) {
+            assertEquals(1L, response.getId());
+            assertEquals("PAYID-TEST-1", response.getPaypalPaymentId());
+            assertEquals(PaymentStatus.CREATED, response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult;
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult.Mismatch;
+import com.shivamsrivastav.payment.dto.response.ReconciliationResult.MismatchType;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import com.shivamsrivastav.payment.repository.PaymentSettlementView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the merge classification of {@link ReconciliationService},
+ * using the sample report in src/test/resources/reconciliation and a
+ * mocked payments table.
+ *
+ * @author Shivam Srivastav
+ */
+class ReconciliationServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+    @TempDir
+    Path outputDir;
+
+    private PaymentRepository paymentRepository;
+    private ReconciliationService reconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        paymentRepository = mock(PaymentRepository.class);
+        // Chunks of 3 rows, so the report goes through the external merge
+        reconciliationService = new ReconciliationService(paymentRepository,
+                mock(PlatformTransactionManager.class), 3, outputDir.toString());
+    }
+
+    /**
+     * Payment PAYID-MOCK-1004 is stored with a capture ID other than the
+     * report's 9XC34567AB1234567, sorting either before it (the merge has
+     * already passed the payment when the row is looked up) or after it.
+     * Either way it is one CAPTURE_ID_MISMATCH and not also missing.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"4ZZ00000000000000", "ZZ000000000000000"})
+    void classifiesSampleReport(String wrongCaptureId) throws Exception {
+        PaymentSettlementView wrongCapture = view(4L, "PAYID-MOCK-1004", wrongCaptureId, "75.00", "USD", "CAPTURED");
+        List<PaymentSettlementView> local = new ArrayList<>(List.of(
+                view(5L, "PAYID-MOCK-1005", "1AB23456CD7890123", "19.90", "EUR", "CAPTURED"),
+                view(2L, "PAYID-MOCK-1002", "2GG279541U471931P", "49.99", "USD", "REFUNDED"),
+                view(6L, "PAYID-MOCK-1006", "3KL98765MN4321098", "310.00", "USD", "CAPTURED"),
+                view(3L, "PAYID-MOCK-1003", "5TY05013RG002845M", "250.00", "USD", "PARTIALLY_REFUNDED"),
+                view(9L, "PAYID-LOCAL-ONLY", "6MM00000000000000", "12.00", "USD", "CAPTURED"),
+                view(7L, "PAYID-MOCK-1007", "7QR11223ST4455667", "1000.00", "USD", "CAPTURED"),
+                wrongCapture));
+        local.sort(Comparator.comparing(PaymentSettlementView::getPaypalCaptureId));
+
+        when(paymentRepository.streamSettlementViews(any(), any())).thenReturn(local.stream());
+        when(paymentRepository.findSettlementViewByPaypalPaymentId("PAYID-MOCK-1004"))
+                .thenReturn(Optional.of(wrongCapture));
+        // Captured before the report period, so not streamed: found by payment ID
+        when(paymentRepository.findSettlementViewByPaypalPaymentId("PAYID-MOCK-1001"))
+                .thenReturn(Optional.of(view(1L, "PAYID-MOCK-1001", "8MC585209K746392H", "100.00", "USD",
+                        "CAPTURED")));
+
+        ReconciliationResult result = reconciliationService.reconcile(SettlementReportSorterTest.sampleReport(),
+                DAY, DAY.plusDays(1));
+
+        assertEquals(9, result.getReportRows());
+        assertEquals(7, result.getLocalRows());
+        // 1AB, 2GG, 3KL, 5TY, 7QR ("1,000.00") and 8MC via payment ID
+        assertEquals(6, result.getMatched());
+        assertEquals(1, result.getDuplicatesInReport());
+        assertEquals(1, result.getMissingLocal());
+        assertEquals(1, result.getCaptureIdMismatches());
+        assertEquals(1, result.getMissingInReport());
+        assertEquals(0, result.getAmountMismatches());
+        assertEquals(0, result.getStatusMismatches());
+
+        assertEquals(List.of(4L), localIds(result, MismatchType.CAPTURE_ID_MISMATCH));
+        assertEquals(List.of(9L), localIds(result, MismatchType.MISSING_IN_REPORT));
+        assertEquals("PAYID-MOCK-1008", result.getSample().stream()
+                .filter(m -> m.type() == MismatchType.MISSING_LOCAL)
+                .findFirst().orElseThrow().paypalPaymentId());
+
+        // Header plus one line per mismatch
+        assertEquals(1 + result.getTotalMismatches(), Files.readAllLines(Path.of(result.getMismatchFile())).size());
+    }
+
+    private static List<Long> localIds(ReconciliationResult result, MismatchType type) {
+        return result.getSample().stream().filter(m -> m.type() == type).map(Mismatch::localPaymentId).toList();
+    }
+
+    private static PaymentSettlementView view(Long id, String paypalPaymentId, String captureId, String amount,
+            String currency, String status) {
+        return new PaymentSettlementView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPaypalPaymentId() {
+                return paypalPaymentId;
+            }
+
+            @Override
+            public String getPaypalCaptureId() {
+                return captureId;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return new BigDecimal(amount);
+            }
+
+            @Override
+            public BigDecimal getCapturedAmount() {
+                return new BigDecimal(amount);
+            }
+
+            @Override
+            public BigDecimal getRefundedAmount() {
+                return BigDecimal.ZERO;
+            }
+
+            @Override
+            public String getCurrency() {
+                return currency;
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+        };
+    }
+}
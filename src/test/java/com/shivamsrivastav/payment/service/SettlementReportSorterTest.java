@@ -0,0 +1,110 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.exception.PaymentException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link SettlementReportSorter} against the sample report in
+ * src/test/resources/reconciliation.
+ *
+ * @author Shivam Srivastav
+ */
+class SettlementReportSorterTest {
+
+    private static final List<String> SORTED_IDS = List.of(
+            "", "1AB23456CD7890123", "2GG279541U471931P", "3KL98765MN4321098", "3KL98765MN4321098",
+            "5TY05013RG002845M", "7QR11223ST4455667", "8MC585209K746392H", "9XC34567AB1234567");
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void sortsReportInOneChunk() throws Exception {
+        List<SettlementReportSorter.Entry> entries = sortAndRead(1_000);
+
+        assertEquals(SORTED_IDS, entries.stream().map(SettlementReportSorter.Entry::transactionId).toList());
+    }
+
+    @Test
+    void mergesChunkedRunsIntoSameOrder() throws Exception {
+        // 9 rows in chunks of 2: five run files, k-way merged
+        List<SettlementReportSorter.Entry> entries = sortAndRead(2);
+
+        assertEquals(SORTED_IDS, entries.stream().map(SettlementReportSorter.Entry::transactionId).toList());
+        try (var files = Files.list(workDir)) {
+            assertEquals(1, files.count(), "run files are deleted after the merge");
+        }
+    }
+
+    @Test
+    void parsesQuotedAmountWithThousandsSeparator() throws Exception {
+        SettlementReportSorter.Entry entry = sortAndRead(2).stream()
+                .filter(e -> e.transactionId().equals("7QR11223ST4455667"))
+                .findFirst().orElseThrow();
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(entry.grossAmount()));
+        assertEquals("USD", entry.currency());
+        assertEquals("completed", entry.status());
+    }
+
+    @Test
+    void keepsRowWithBlankTransactionId() throws Exception {
+        SettlementReportSorter.Entry first = sortAndRead(2).get(0);
+
+        assertEquals("", first.transactionId());
+        assertEquals("PAYID-MOCK-1008", first.paymentId());
+        assertEquals("pending", first.status());
+    }
+
+    @Test
+    void rejectsReportWithoutRequiredColumn() throws Exception {
+        Path report = workDir.resolve("report.csv");
+        Files.writeString(report, "transaction_id,payment_id,gross_amount,currency\nA,B,1.00,USD\n");
+
+        PaymentException e = assertThrows(PaymentException.class,
+                () -> SettlementReportSorter.sort(report, workDir, 10));
+        assertEquals("Settlement report is missing column: status", e.getMessage());
+    }
+
+    @Test
+    void rejectsInvalidAmountWithLineNumber() throws Exception {
+        Path report = workDir.resolve("report.csv");
+        Files.writeString(report, "transaction_id,payment_id,gross_amount,currency,status\n"
+                + "A,B,1.00,USD,completed\nC,D,abc,USD,completed\n");
+
+        PaymentException e = assertThrows(PaymentException.class,
+                () -> SettlementReportSorter.sort(report, workDir, 10));
+        assertTrue(e.getMessage().startsWith("Invalid settlement report row at line 3"));
+    }
+
+    private List<SettlementReportSorter.Entry> sortAndRead(int chunkLines) throws IOException, URISyntaxException {
+        Path sorted = SettlementReportSorter.sort(sampleReport(), workDir, chunkLines);
+
+        List<SettlementReportSorter.Entry> entries = new ArrayList<>();
+        try (SettlementReportSorter.SortedEntries reader = SettlementReportSorter.open(sorted)) {
+            SettlementReportSorter.Entry entry;
+            while ((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    static Path sampleReport() throws URISyntaxException {
+        return Path.of(SettlementReportSorterTest.class
+                .getResource("/reconciliation/sample-settlement-report.csv").toURI());
+    }
+}
@@ -0,0 +1,100 @@
+package com.shivamsrivastav.payment.service;
+
+import com.shivamsrivastav.payment.entity.WebhookEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link WebhookPayloadCodec}: each storage mode round-trips the
+ * payload and fills exactly one payload column.
+ *
+ * @author Shivam Srivastav
+ */
+class WebhookPayloadCodecTest {
+
+    private static final String PAYLOAD = "{\"id\":\"WH-1\",\"event_type\":\"PAYMENT.CAPTURE.COMPLETED\","
+            + "\"resource\":{\"id\":\"5TY05013RG002845M\",\"amount\":{\"total\":\"10.00\",\"currency\":\"EUR\"},"
+            + "\"description\":\"Café über €\"}}";
+
+    @Test
+    void textStoresPayloadAsReceived() {
+        WebhookEvent event = store("text", PAYLOAD);
+
+        assertEquals(PAYLOAD, event.getPayload());
+        assertNull(event.getPayloadGzip());
+        assertNull(event.getPayloadJsonb());
+        assertEquals(PAYLOAD, new WebhookPayloadCodec("text").decode(event));
+    }
+
+    @Test
+    void gzipRoundTrips() {
+        WebhookEvent event = store("gzip", PAYLOAD);
+
+        assertNull(event.getPayload());
+        assertNotNull(event.getPayloadGzip());
+        assertNull(event.getPayloadJsonb());
+        assertEquals(PAYLOAD, new WebhookPayloadCodec("gzip").decode(event));
+    }
+
+    @Test
+    void gzipShrinksRepetitivePayload() {
+        String payload = "[" + (PAYLOAD + ",").repeat(50) + PAYLOAD + "]";
+
+        byte[] compressed = new WebhookPayloadCodec("gzip").encode(payload).gzip();
+
+        assertTrue(compressed.length < payload.getBytes(StandardCharsets.UTF_8).length / 4);
+    }
+
+    @Test
+    void jsonbRoundTrips() {
+        WebhookEvent event = store("jsonb", PAYLOAD);
+
+        assertNull(event.getPayload());
+        assertNull(event.getPayloadGzip());
+        assertEquals(PAYLOAD, event.getPayloadJsonb());
+        assertEquals(PAYLOAD, new WebhookPayloadCodec("jsonb").decode(event));
+    }
+
+    @Test
+    void jsonbKeepsNulEscapeAsText() {
+        String payload = "{\"id\":\"WH-2\",\"note\":\"a\\u0000b\"}";
+
+        WebhookPayloadCodec.Encoded encoded = new WebhookPayloadCodec("jsonb").encode(payload);
+
+        assertEquals(payload, encoded.text());
+        assertArrayEquals(new byte[0], encoded.gzip());
+        assertEquals("", encoded.jsonb());
+    }
+
+    @Test
+    void decodeIgnoresCurrentMode() {
+        WebhookEvent gzipped = store("gzip", PAYLOAD);
+        WebhookEvent jsonb = store("jsonb", PAYLOAD);
+        WebhookEvent text = store("text", PAYLOAD);
+
+        WebhookPayloadCodec codec = new WebhookPayloadCodec("text");
+        assertEquals(PAYLOAD, codec.decode(gzipped));
+        assertEquals(PAYLOAD, codec.decode(jsonb));
+        assertEquals(PAYLOAD, new WebhookPayloadCodec("gzip").decode(text));
+    }
+
+    @Test
+    void storageModeIsCaseInsensitive() {
+        assertEquals(PAYLOAD, new WebhookPayloadCodec(" GZip ").decode(store(" GZip ", PAYLOAD)));
+        assertThrows(IllegalArgumentException.class, () -> new WebhookPayloadCodec("zstd"));
+    }
+
+    private static WebhookEvent store(String storage, String payload) {
+        WebhookEvent event = new WebhookEvent();
+        new WebhookPayloadCodec(storage).store(event, payload);
+        return event;
+    }
+}
@@ -0,0 +1,437 @@
+package com.shivamsrivastav.payment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shivamsrivastav.payment.entity.Payment;
+import com.shivamsrivastav.payment.entity.WebhookEvent;
+import com.shivamsrivastav.payment.entity.enums.PaymentOperation;
+import com.shivamsrivastav.payment.entity.enums.PaymentStatus;
+import com.shivamsrivastav.payment.exception.PaymentException;
+import com.shivamsrivastav.payment.repository.PaymentRepository;
+import com.shivamsrivastav.payment.repository.SubscriptionRepository;
+import com.shivamsrivastav.payment.repository.WebhookEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for stored-event processing in {@link WebhookService}: duplicate
+ * suppression, per-resource ordering, retry scheduling and dead-lettering of failed events, and
+ * handlers that defer
+ * an event whose target is missing, busy or not yet in the right state.
+ *
+ * Events are processed synchronously through processWebhook; the stored
+ * row is an in-memory WebhookEvent returned by the mocked repository.
+ *
+ * @author Shivam Srivastav
+ */
+class WebhookServiceTest {
+
+    private static final long EVENT_ROW_ID = 7L;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_DELAY_MS = 1_000;
+    private static final long MAX_DELAY_MS = 8_000;
+
+    private static final String CAPTURE_COMPLETED = "PAYMENT.CAPTURE.COMPLETED";
+    private static final String CAPTURE_REFUNDED = "PAYMENT.CAPTURE.REFUNDED";
+    private static final String AUTHORIZATION_VOIDED = "PAYMENT.AUTHORIZATION.VOIDED";
+    private static final String SUBSCRIPTION_ACTIVATED = "BILLING.SUBSCRIPTION.ACTIVATED";
+
+    private WebhookEventRepository webhookEventRepository;
+    private PaymentRepository paymentRepository;
+    private SubscriptionRepository subscriptionRepository;
+    private IdempotencyResponseCache responseCache;
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookService webhookService;
+
+    @BeforeEach
+    void setUp() {
+        webhookEventRepository = mock(WebhookEventRepository.class);
+        paymentRepository = mock(PaymentRepository.class);
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        responseCache = mock(IdempotencyResponseCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        webhookService = new WebhookService(webhookEventRepository, paymentRepository, subscriptionRepository,
+                responseCache, new WebhookPayloadCodec("text"), new ObjectMapper(),
+                mock(PlatformTransactionManager.class), meterRegistry,
+                2, 100, false, MAX_ATTEMPTS, BASE_DELAY_MS, MAX_DELAY_MS, 300);
+
+        when(webhookEventRepository.insertIfAbsent(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(EVENT_ROW_ID));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        webhookService.shutdown();
+    }
+
+    // ==================== Deduplication ====================
+
+    @Test
+    void redeliveredEventIsNotProcessedAgain() {
+        when(webhookEventRepository.insertIfAbsent(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of());
+
+        webhookService.processWebhook("{\"id\":\"WH-1\",\"event_type\":\"" + CAPTURE_COMPLETED + "\","
+                + "\"resource\":" + capture("CAP-1", "PAYID-1") + "}");
+
+        verify(webhookEventRepository, never()).findById(any());
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchStoresOnlyEventsNotReceivedBefore() {
+        // The key set passed in is later trimmed to the new keys, so copy it
+        List<String> registered = new ArrayList<>();
+        when(webhookEventRepository.insertNewKeys(any(), any())).thenAnswer(invocation -> {
+            registered.addAll(invocation.getArgument(0));
+            return List.of("WH-2");
+        });
+
+        int stored = webhookService.ingestWebhooks("[{\"id\":\"WH-1\",\"event_type\":\"X\"},"
+                + "{\"id\":\"WH-2\",\"event_type\":\"X\"},{\"id\":\"WH-2\",\"event_type\":\"X\"}]");
+
+        assertEquals(List.of("WH-1", "WH-2"), registered);
+
+        ArgumentCaptor<Collection<WebhookEvent>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(webhookEventRepository).saveAll(saved.capture());
+        assertEquals(List.of("WH-2"), saved.getValue().stream().map(WebhookEvent::getEventId).toList());
+        assertEquals(1, stored);
+    }
+
+    @Test
+    void malformedBatchIsRejected() {
+        assertThrows(PaymentException.class, () -> webhookService.ingestWebhooks("{\"id\":\"WH-1\"}"));
+        assertThrows(PaymentException.class, () -> webhookService.ingestWebhooks("[{\"event_type\":\"X\"}]"));
+        assertThrows(PaymentException.class, () -> webhookService.ingestWebhooks("[{"));
+        verifyNoInteractions(webhookEventRepository);
+    }
+
+    // ==================== Ordering ====================
+
+    @Test
+    void eventsForOneResourceShareAnOrderingKey() {
+        WebhookEvent completed = WebhookEvent.builder().eventId("WH-1").resourceId("CAP-1").build();
+        WebhookEvent refunded = WebhookEvent.builder().eventId("WH-2").resourceId("CAP-1").build();
+        WebhookEvent withoutResource = WebhookEvent.builder().eventId("WH-3").resourceId("").build();
+
+        assertEquals("CAP-1", WebhookService.orderingKey(completed));
+        assertEquals("CAP-1", WebhookService.orderingKey(refunded));
+        assertEquals("WH-3", WebhookService.orderingKey(withoutResource));
+    }
+
+    @Test
+    void claimedEventsKeepTheClaimOrder() {
+        // claimDue orders by (next_attempt_at, id); findAllById does not
+        when(webhookEventRepository.claimDue(any(), any(), anyInt(), any(), anyInt()))
+                .thenReturn(List.of(3L, 1L, 2L));
+        when(webhookEventRepository.findAllById(any()))
+                .thenReturn(List.of(claimed(1L), claimed(2L), claimed(3L)));
+
+        List<WebhookEvent> events = webhookService.claimDue(1, List.of(0), 10);
+
+        assertEquals(List.of(3L, 1L, 2L), events.stream().map(WebhookEvent::getId).toList());
+    }
+
+    @Test
+    void dispatchedEventsForOneResourceRunInClaimOrder() throws InterruptedException {
+        int count = 50;
+        List<Long> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(count);
+        when(webhookEventRepository.findById(anyLong())).thenAnswer(invocation -> {
+            processed.add(invocation.getArgument(0));
+            done.countDown();
+            return Optional.empty();
+        });
+
+        for (long id = 1; id <= count; id++) {
+            assertTrue(webhookService.dispatch(claimed(id)));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(LongStream.rangeClosed(1, count).boxed().toList(), processed);
+    }
+
+    // ==================== Retry and Dead Letter ====================
+
+    @Test
+    void retryDelayDoublesWithEqualJitterUpToTheCap() {
+        for (int i = 0; i < 1_000; i++) {
+            assertBetween(500, 1_000, webhookService.retryDelayMs(1));
+            assertBetween(1_000, 2_000, webhookService.retryDelayMs(2));
+            assertBetween(2_000, 4_000, webhookService.retryDelayMs(3));
+            assertBetween(4_000, 8_000, webhookService.retryDelayMs(5));
+            // The shift is bounded, so a huge attempt count cannot overflow
+            assertBetween(4_000, 8_000, webhookService.retryDelayMs(200));
+        }
+    }
+
+    @Test
+    void failedEventIsScheduledForRetry() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), 0);
+
+        LocalDateTime before = LocalDateTime.now();
+        webhookService.processWebhook(event.getPayload());
+
+        assertFalse(event.isProcessed());
+        assertFalse(event.isDeadLetter());
+        assertEquals(1, event.getRetryCount());
+        assertNotNull(event.getErrorMessage());
+        assertNotNull(event.getNextAttemptAt());
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusNanos(500 * 1_000_000L)));
+        assertTrue(event.getNextAttemptAt().isBefore(LocalDateTime.now().plusSeconds(2)));
+        assertEquals(1.0, failedCount("retry"));
+        assertEquals(0.0, failedCount("dead_letter"));
+        verify(webhookEventRepository).save(event);
+    }
+
+    @Test
+    void lastAttemptDeadLettersTheEvent() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), MAX_ATTEMPTS - 1);
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertFalse(event.isProcessed());
+        assertTrue(event.isDeadLetter());
+        assertEquals(MAX_ATTEMPTS, event.getRetryCount());
+        assertNull(event.getNextAttemptAt());
+        assertEquals(0.0, failedCount("retry"));
+        assertEquals(1.0, failedCount("dead_letter"));
+    }
+
+    @Test
+    void deadLetteredEventIsNotProcessedAgain() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), MAX_ATTEMPTS);
+        event.setDeadLetter(true);
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertEquals(MAX_ATTEMPTS, event.getRetryCount());
+        assertEquals(0.0, failedCount("retry") + failedCount("dead_letter"));
+    }
+
+    @Test
+    void successfulRetryClearsTheError() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), 1);
+        event.setErrorMessage("previous failure");
+        when(paymentRepository.applyCaptureCompleted(any(), any(), any(), anyBoolean()))
+                .thenReturn(List.of("order-1-key"));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertTrue(event.isProcessed());
+        assertNull(event.getErrorMessage());
+        assertNull(event.getNextAttemptAt());
+        verify(responseCache).evict("order-1-key");
+    }
+
+    // ==================== Not Yet Applicable ====================
+
+    @Test
+    void captureForUnknownPaymentIsRetried() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), 0);
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "Cannot apply capture CAP-1 yet: no payment found");
+    }
+
+    @Test
+    void captureForPaymentWithCallInFlightIsRetried() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), 0);
+        when(paymentRepository.findByPaypalPaymentId("PAYID-1"))
+                .thenReturn(Optional.of(payment(PaymentStatus.AUTHORIZED, PaymentOperation.CAPTURE)));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "payment id=11 has a CAPTURE in progress");
+    }
+
+    @Test
+    void captureAlreadyAppliedIsProcessed() {
+        WebhookEvent event = storedEvent(CAPTURE_COMPLETED, capture("CAP-1", "PAYID-1"), 0);
+        when(paymentRepository.findByPaypalCaptureId("CAP-1"))
+                .thenReturn(Optional.of(payment(PaymentStatus.COMPLETED, null)));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertTrue(event.isProcessed());
+        assertEquals(0, event.getRetryCount());
+        verify(responseCache, never()).evict(any());
+    }
+
+    @Test
+    void refundBeforeCaptureIsRecordedIsRetried() {
+        WebhookEvent event = storedEvent(CAPTURE_REFUNDED, refund("REF-1", "CAP-1", "4.00"), 0);
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "Cannot apply refund REF-1 yet: capture CAP-1 not recorded yet");
+    }
+
+    @Test
+    void refundOfPaymentNotYetCapturedIsRetried() {
+        WebhookEvent event = storedEvent(CAPTURE_REFUNDED, refund("REF-1", "CAP-1", "4.00"), 0);
+        when(paymentRepository.findByPaypalCaptureId("CAP-1"))
+                .thenReturn(Optional.of(payment(PaymentStatus.AUTHORIZED, null)));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "payment id=11 is still AUTHORIZED");
+    }
+
+    @Test
+    void refundForPaymentWithRefundInFlightIsRetried() {
+        WebhookEvent event = storedEvent(CAPTURE_REFUNDED, refund("REF-1", "CAP-1", "4.00"), 0);
+        when(paymentRepository.findByPaypalCaptureId("CAP-1"))
+                .thenReturn(Optional.of(payment(PaymentStatus.COMPLETED, PaymentOperation.REFUND)));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "payment id=11 has a REFUND in progress");
+    }
+
+    @Test
+    void refundAlreadyAppliedIsProcessed() {
+        WebhookEvent event = storedEvent(CAPTURE_REFUNDED, refund("REF-1", "CAP-1", "4.00"), 0);
+        when(paymentRepository.findByPaypalCaptureId("CAP-1"))
+                .thenReturn(Optional.of(payment(PaymentStatus.PARTIALLY_REFUNDED, null)));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertTrue(event.isProcessed());
+    }
+
+    @Test
+    void refundUsesPayPalRunningTotal() {
+        WebhookEvent event = storedEvent(CAPTURE_REFUNDED, "{\"id\":\"REF-2\",\"capture_id\":\"CAP-1\","
+                + "\"amount\":{\"total\":\"4.00\",\"currency\":\"USD\"},"
+                + "\"total_refunded_amount\":{\"value\":\"7.50\",\"currency_code\":\"USD\"}}", 0);
+        when(paymentRepository.applyCaptureRefunded("CAP-1", new BigDecimal("7.50")))
+                .thenReturn(List.of("order-1-key"));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertTrue(event.isProcessed());
+        verify(responseCache).evict("order-1-key");
+    }
+
+    @Test
+    void voidForPaymentWithCallInFlightIsRetried() {
+        WebhookEvent event = storedEvent(AUTHORIZATION_VOIDED, "{\"id\":\"AUTH-1\"}", 0);
+        when(paymentRepository.findByPaypalAuthorizationId("AUTH-1"))
+                .thenReturn(Optional.of(payment(PaymentStatus.AUTHORIZED, PaymentOperation.VOID)));
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "Cannot apply void of AUTH-1 yet: payment id=11 has a VOID in progress");
+    }
+
+    @Test
+    void activationBeforeSubscriptionExistsIsRetried() {
+        WebhookEvent event = storedEvent(SUBSCRIPTION_ACTIVATED, "{\"id\":\"I-SUB1\"}", 0);
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertRetried(event, "Cannot apply activation of I-SUB1 yet: no subscription found");
+    }
+
+    @Test
+    void unhandledEventTypeIsProcessed() {
+        WebhookEvent event = storedEvent("CUSTOMER.DISPUTE.CREATED", "{\"id\":\"PP-D-1\"}", 0);
+
+        webhookService.processWebhook(event.getPayload());
+
+        assertTrue(event.isProcessed());
+        verifyNoInteractions(paymentRepository, subscriptionRepository);
+    }
+
+    // ==================== Helpers ====================
+
+    private WebhookEvent storedEvent(String eventType, String resource, int retryCount) {
+        WebhookEvent event = WebhookEvent.builder()
+                .id(EVENT_ROW_ID)
+                .eventId("WH-1")
+                .eventType(eventType)
+                .payload("{\"id\":\"WH-1\",\"event_type\":\"" + eventType + "\",\"resource\":" + resource + "}")
+                .receivedAt(LocalDateTime.now())
+                .retryCount(retryCount)
+                .build();
+        when(webhookEventRepository.findById(EVENT_ROW_ID)).thenReturn(Optional.of(event));
+        return event;
+    }
+
+    private static WebhookEvent claimed(long id) {
+        return WebhookEvent.builder()
+                .id(id)
+                .eventId("WH-" + id)
+                .eventType(CAPTURE_COMPLETED)
+                .resourceId("CAP-1")
+                .receivedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static String capture(String captureId, String paypalPaymentId) {
+        return "{\"id\":\"" + captureId + "\",\"parent_payment\":\"" + paypalPaymentId + "\","
+                + "\"amount\":{\"total\":\"10.00\",\"currency\":\"USD\"},\"is_final_capture\":true}";
+    }
+
+    private static String refund(String refundId, String captureId, String amount) {
+        return "{\"id\":\"" + refundId + "\",\"capture_id\":\"" + captureId + "\","
+                + "\"amount\":{\"total\":\"" + amount + "\",\"currency\":\"USD\"}}";
+    }
+
+    private static Payment payment(PaymentStatus status, PaymentOperation pendingOperation) {
+        Payment payment = new Payment();
+        payment.setId(11L);
+        payment.setStatus(status);
+        payment.setPendingOperation(pendingOperation);
+        return payment;
+    }
+
+    private void assertRetried(WebhookEvent event, String reason) {
+        assertFalse(event.isProcessed());
+        assertEquals(1, event.getRetryCount());
+        assertNotNull(event.getNextAttemptAt());
+        assertTrue(event.getErrorMessage().contains(reason), event.getErrorMessage());
+    }
+
+    private double failedCount(String outcome) {
+        return meterRegistry.get("webhook.events.failed").tag("outcome", outcome).counter().count();
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual >= min && actual <= max, actual + " not in [" + min + ", " + max + "]");
+    }
+}